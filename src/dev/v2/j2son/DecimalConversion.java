@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2013-2025 - Troy Wu
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.v2.j2son;
+
+
+import java.math.BigInteger;
+
+
+/**
+ * Converts a decimal (a 64-bit mantissa and a power of ten) to the nearest
+ * double, without going through a String.
+ * <p>
+ * Small cases are exact in double arithmetic (Clinger's fast path); the
+ * rest use the Eisel-Lemire algorithm, which multiplies by a 128-bit
+ * approximation of the power of ten.  In the rare cases which that cannot
+ * decide, the caller has to fall back to Double.parseDouble().
+ */
+final class DecimalConversion
+{
+    private static final int MIN_EXPONENT = -342; // Anything smaller rounds to zero.
+    private static final int MAX_EXPONENT = 308;  // Anything larger is infinite.
+
+    private static final double[] EXACT_POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // NOTE - 10^q, as a 128-bit mantissa (truncated for q >= 0, rounded up for q < 0), split in two.
+    private static final long[] POWER_HI = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+    private static final long[] POWER_LO = new long[MAX_EXPONENT - MIN_EXPONENT + 1];
+
+    static
+    {
+        final BigInteger five = BigInteger.valueOf( 5 );
+
+        for( int q = MIN_EXPONENT; q <= MAX_EXPONENT; ++q )
+        {
+            BigInteger c;
+
+            if( q >= 0 )
+            {
+                c = five.pow( q );
+                c = c.bitLength() < 128 ? c.shiftLeft( 128 - c.bitLength() ) : c.shiftRight( c.bitLength() - 128 );
+            }
+            else
+            {
+                final BigInteger p = five.pow( -q );
+                final int        z = p.bitLength();
+                final int        b = q >= -27 ? z + 127 : 2 * z + 128;
+
+                c = BigInteger.ONE.shiftLeft( b ).divide( p ).add( BigInteger.ONE );
+                if( c.bitLength() > 128 ) c = c.shiftRight( c.bitLength() - 128 );
+            }
+
+            POWER_HI[q - MIN_EXPONENT] = c.shiftRight( 64 ).longValue();
+            POWER_LO[q - MIN_EXPONENT] = c.longValue();
+        }
+    }
+
+
+    private DecimalConversion()
+    {
+    }
+
+
+    /**
+     * @param mantissa    Unsigned; at most 19 decimal digits.
+     * @param exp10       Power of ten to scale the mantissa by.
+     * @param isTruncated true if more digits followed the mantissa, so the
+     *                    value lies between mantissa and mantissa + 1.
+     * @return The nearest double, or NaN if it cannot be decided here.
+     */
+    static double toDouble( final long mantissa, final long exp10, final boolean isTruncated )
+    {
+        if( 0 == mantissa ) return 0.0d;
+
+        if( !isTruncated )
+        {
+            // Both the mantissa and the power of ten are exact as doubles, so just one rounding.
+            if( Long.compareUnsigned( mantissa, 1L << 53 ) <= 0 && -22 <= exp10 && exp10 <= 22 )
+            {
+                final double d = (double) mantissa;
+                return exp10 < 0 ? d / EXACT_POWERS_OF_TEN[(int) -exp10] : d * EXACT_POWERS_OF_TEN[(int) exp10];
+            }
+
+            return eiselLemire( mantissa, exp10 );
+        }
+
+        // NOTE - Only decided if both ends of the range round the same way.
+        final double lower = eiselLemire( mantissa, exp10 );
+        final double upper = eiselLemire( mantissa + 1, exp10 );
+
+        return lower == upper ? lower : Double.NaN;
+    }
+
+
+    private static double eiselLemire( long mantissa, final long exp10 )
+    {
+        if( exp10 < MIN_EXPONENT ) return 0.0d;
+        if( exp10 > MAX_EXPONENT ) return Double.POSITIVE_INFINITY;
+
+        final int q = (int) exp10;
+
+        // Normalize.
+        final int leadingZeros = Long.numberOfLeadingZeros( mantissa );
+        mantissa <<= leadingZeros;
+
+        long exp2 = ((217706L * q) >> 16) + 64 + 1023 - leadingZeros;
+
+        // Multiply by the upper half of the power.
+        long hi = multiplyHighUnsigned( mantissa, POWER_HI[q - MIN_EXPONENT] );
+        long lo = mantissa * POWER_HI[q - MIN_EXPONENT];
+
+        // If the low bits are all ones, the lower half of the power may carry into them.
+        if( 0x1FF == (hi & 0x1FF) && Long.compareUnsigned( lo + mantissa, mantissa ) < 0 )
+        {
+            final long yHi = multiplyHighUnsigned( mantissa, POWER_LO[q - MIN_EXPONENT] );
+            final long yLo = mantissa * POWER_LO[q - MIN_EXPONENT];
+
+            long       mergedHi = hi;
+            final long mergedLo = lo + yHi;
+            if( Long.compareUnsigned( mergedLo, lo ) < 0 ) ++mergedHi;
+
+            if( 0x1FF == (mergedHi & 0x1FF) && -1L == mergedLo && Long.compareUnsigned( yLo + mantissa, mantissa ) < 0 ) return Double.NaN;
+
+            hi = mergedHi;
+            lo = mergedLo;
+        }
+
+        // Shift down to 54 bits.
+        final long msb  = hi >>> 63;
+        long       bits = hi >>> (msb + 9);
+        exp2 -= 1 ^ msb;
+
+        // Exactly half-way between two doubles; can't tell which way to round.
+        if( 0 == lo && 0 == (hi & 0x1FF) && 1 == (bits & 3) ) return Double.NaN;
+
+        // Round to 53 bits.
+        bits += bits & 1;
+        bits >>>= 1;
+        if( 0 != (bits >>> 53) )
+        {
+            bits >>>= 1;
+            ++exp2;
+        }
+
+        // NOTE - Subnormal, or overflowed; left to the fallback.
+        if( exp2 <= 0 || exp2 >= 0x7FF ) return Double.NaN;
+
+        return Double.longBitsToDouble( (exp2 << 52) | (bits & 0x000FFFFFFFFFFFFFL) );
+    }
+
+
+    private static long multiplyHighUnsigned( final long a, final long b )
+    {
+        return Math.multiplyHigh( a, b ) + ((a >> 63) & b) + ((b >> 63) & a);
+    }
+}
@@ -0,0 +1,431 @@
+/*
+ * Copyright (c) 2013-2025 - Troy Wu
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.v2.j2son;
+
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+
+/**
+ * Formats a double in the fewest digits which read back as the same double,
+ * without going through a String: either as Double.toString() does (e.g.,
+ * 1.0E10), or as ECMAScript's Number.toString() does (e.g., 10000000000),
+ * which is what RFC 8785 canonical JSON asks for.
+ * <p>
+ * The digits come from Giulietti's Schubfach algorithm, which brackets the
+ * double's rounding interval with one 126-bit approximation of a power of ten,
+ * and then picks the shortest decimal inside it.  Unlike Double.toString()
+ * before Java 19, it never gives more digits than needed.
+ */
+final class DoubleFormat
+{
+    static final int MAX_LENGTH = 32; // e.g., -2.2250738585072014E-308
+
+    private static final int  P      = 53;         // Bits in the significand, counting the hidden one.
+    private static final int  Q_MIN  = -1074;      // Exponent of the smallest subnormal.
+    private static final long C_MIN  = 1L << 52;   // Significand of a power of two.
+    private static final long C_TINY = 3;          // Subnormal significands below this need one more digit.
+    private static final long MASK_63 = 0x7FFF_FFFF_FFFF_FFFFL;
+
+    private static final int K_MIN = -324;
+    private static final int K_MAX = 292;
+
+    // NOTE - For each k, g = floor( 10^-k * 2^(125 - floor( log2( 10^-k ) )) ) + 1, as 63 high and 63 low bits.
+    private static final long[] G = new long[2 * (K_MAX - K_MIN + 1)];
+
+    static
+    {
+        for( int k = K_MIN; k <= K_MAX; ++k )
+        {
+            final int r = flog2pow10( -k ) - 125;
+
+            BigInteger num = BigInteger.TEN.pow( Math.max( -k, 0 ) );
+            BigInteger den = BigInteger.TEN.pow( Math.max( k, 0 ) );
+
+            if( r < 0 ) num = num.shiftLeft( -r );
+            else den = den.shiftLeft( r );
+
+            final BigInteger g = num.divide( den ).add( BigInteger.ONE );
+
+            G[2 * (k - K_MIN)]     = g.shiftRight( 63 ).longValue();
+            G[2 * (k - K_MIN) + 1] = g.longValue() & MASK_63;
+        }
+    }
+
+    final char[] chars = new char[MAX_LENGTH];
+
+    private final char[] digitChars = new char[20];
+
+    // The shortest decimal, as digits * 10^exponent.
+    private long digits;
+    private int  exponent;
+
+
+    /**
+     * Formats a finite double into chars.
+     *
+     * @param isEcma ECMAScript's format, rather than Java's.
+     * @return The number of chars.
+     */
+    int format( final double v, final boolean isEcma )
+    {
+        int len = 0;
+
+        if( v < 0 || 0 == v && 1 / v < 0 )
+        {
+            if( !isEcma || 0 != v ) chars[len++] = '-';
+        }
+
+        if( 0 == v ) return put( len, isEcma ? "0" : "0.0" );
+
+        shortest( v );
+
+        stripZeros();
+
+        // NOTE - For the tiniest subnormals, Schubfach keeps two digits (as Java shows); ECMAScript
+        //        wants one, if it reads back the same.  Every other double is already at its shortest.
+        if( isEcma && Math.abs( v ) < Double.MIN_NORMAL && digits < 100 && digits >= 10 )
+        {
+            oneDigit( Math.abs( v ) );
+            stripZeros(); // Rounding 9.9 up gives 10.
+        }
+
+        final int k = digitCount( digits );
+        final int n = exponent + k;
+
+        long d = digits;
+        for( int i = k - 1; i >= 0; --i )
+        {
+            digitChars[i] = (char) ('0' + d % 10);
+            d /= 10;
+        }
+
+        return isEcma ? ecma( len, k, n ) : java( len, k, n );
+    }
+
+
+    /**
+     * Moves trailing zeros into the exponent; then there are k digits, and
+     * the decimal point goes after n of them.
+     */
+    private void stripZeros()
+    {
+        while( 0 == digits % 10 )
+        {
+            digits /= 10;
+            ++exponent;
+        }
+    }
+
+
+    /**
+     * Trades two digits for one, where one reads back as the same double;
+     * only tiny subnormals have intervals that wide.
+     */
+    private void oneDigit( final double v )
+    {
+        final BigDecimal exact = new BigDecimal( v );
+        final BigDecimal lower = BigDecimal.valueOf( digits / 10, -(exponent + 1) );
+        final BigDecimal upper = BigDecimal.valueOf( digits / 10 + 1, -(exponent + 1) );
+
+        final boolean isLower = v == lower.doubleValue();
+        final boolean isUpper = v == upper.doubleValue();
+
+        if( isLower && (!isUpper || exact.subtract( lower ).compareTo( upper.subtract( exact ) ) <= 0) )
+        {
+            digits /= 10;
+            ++exponent;
+        }
+        else if( isUpper )
+        {
+            digits = digits / 10 + 1;
+            ++exponent;
+        }
+    }
+
+
+    /**
+     * As Double.toString(): plain from 10^-3 up to 10^7, with at least one
+     * digit after the point; otherwise as d.dddE[-]x.
+     */
+    private int java( int len, final int k, final int n )
+    {
+        if( -3 < n && n <= 7 )
+        {
+            if( n <= 0 )
+            {
+                len = put( len, "0." );
+                len = zeros( len, -n );
+                return putDigits( len, 0, k );
+            }
+
+            if( k <= n )
+            {
+                len = putDigits( len, 0, k );
+                len = zeros( len, n - k );
+                return put( len, ".0" );
+            }
+
+            len = putDigits( len, 0, n );
+            chars[len++] = '.';
+            return putDigits( len, n, k );
+        }
+
+        len = putDigits( len, 0, 1 );
+        chars[len++] = '.';
+        len = 1 < k ? putDigits( len, 1, k ) : put( len, "0" );
+        chars[len++] = 'E';
+
+        return putInt( len, n - 1 );
+    }
+
+
+    /**
+     * As Number.prototype.toString(): plain from 10^-6 up to 10^21, with no
+     * needless point or zeros; otherwise as d.ddde[+-]x.
+     */
+    private int ecma( int len, final int k, final int n )
+    {
+        if( k <= n && n <= 21 )
+        {
+            len = putDigits( len, 0, k );
+            return zeros( len, n - k );
+        }
+
+        if( 0 < n && n <= 21 )
+        {
+            len = putDigits( len, 0, n );
+            chars[len++] = '.';
+            return putDigits( len, n, k );
+        }
+
+        if( -6 < n && n <= 0 )
+        {
+            len = put( len, "0." );
+            len = zeros( len, -n );
+            return putDigits( len, 0, k );
+        }
+
+        len = putDigits( len, 0, 1 );
+        if( 1 < k )
+        {
+            chars[len++] = '.';
+            len = putDigits( len, 1, k );
+        }
+        chars[len++] = 'e';
+        if( 0 < n ) chars[len++] = '+';
+
+        return putInt( len, n - 1 );
+    }
+
+
+    /**
+     * Puts digits [from, to) of the k digits, counting from the most
+     * significant.
+     */
+    private int putDigits( final int len, final int from, final int to )
+    {
+        System.arraycopy( digitChars, from, chars, len, to - from );
+        return len + to - from;
+    }
+
+
+    private int putInt( int len, int value )
+    {
+        if( value < 0 )
+        {
+            chars[len++] = '-';
+            value = -value;
+        }
+
+        if( value >= 100 ) chars[len++] = (char) ('0' + value / 100);
+        if( value >= 10 ) chars[len++] = (char) ('0' + value / 10 % 10);
+        chars[len++] = (char) ('0' + value % 10);
+
+        return len;
+    }
+
+
+    private int zeros( int len, int count )
+    {
+        while( count-- > 0 ) chars[len++] = '0';
+        return len;
+    }
+
+
+    private int put( int len, final String s )
+    {
+        for( int i = 0; i < s.length(); ++i ) chars[len++] = s.charAt( i );
+        return len;
+    }
+
+
+    private static int digitCount( final long d )
+    {
+        int k = 1;
+        for( long p = 10; k < 19 && p <= d; p *= 10 ) ++k;
+        return k;
+    }
+
+
+    /**
+     * Finds the shortest decimal for a finite, non-zero double.
+     */
+    private void shortest( final double v )
+    {
+        final long bits = Double.doubleToRawLongBits( v );
+        final long t    = bits & (C_MIN - 1);
+        final int  bq   = (int) (bits >>> (P - 1)) & 0x7FF;
+
+        if( 0 == bq )
+        {
+            // Subnormal.
+            if( t < C_TINY ) schubfach( Q_MIN, 10 * t, -1 );
+            else schubfach( Q_MIN, t, 0 );
+            return;
+        }
+
+        final int  mq = -Q_MIN + 1 - bq;
+        final long c  = C_MIN | t;
+
+        // NOTE - An integer below 2^53 is its own shortest decimal.
+        if( 0 < mq && mq < P )
+        {
+            final long f = c >> mq;
+
+            if( f << mq == c )
+            {
+                digits   = f;
+                exponent = 0;
+                return;
+            }
+        }
+
+        schubfach( -mq, c, 0 );
+    }
+
+
+    /**
+     * Finds the shortest decimal in the rounding interval of c * 2^q.
+     */
+    private void schubfach( final int q, final long c, final int dk )
+    {
+        final int  out = (int) c & 1; // NOTE - Ties round to even, so the interval is open when c is odd.
+        final long cb  = c << 2;
+        final long cbr = cb + 2;
+        final long cbl;
+        final int  k;
+
+        if( c != C_MIN || q == Q_MIN )
+        {
+            cbl = cb - 2;
+            k   = flog10pow2( q );
+        }
+        else
+        {
+            // The interval below a power of two is half as wide.
+            cbl = cb - 1;
+            k   = flog10threeQuartersPow2( q );
+        }
+
+        final int  h  = q + flog2pow10( -k ) + 2;
+        final long g1 = G[2 * (k - K_MIN)];
+        final long g0 = G[2 * (k - K_MIN) + 1];
+
+        final long vb  = rop( g1, g0, cb << h );
+        final long vbl = rop( g1, g0, cbl << h );
+        final long vbr = rop( g1, g0, cbr << h );
+
+        final long s = vb >> 2;
+
+        if( s >= 100 )
+        {
+            // One digit fewer, if either neighbour that is a multiple of 10 is inside.
+            final long    sp10 = 10 * Math.multiplyHigh( s, 115_292_150_460_684_698L << 4 );
+            final long    tp10 = sp10 + 10;
+            final boolean upin = vbl + out <= sp10 << 2;
+            final boolean wpin = (tp10 << 2) + out <= vbr;
+
+            if( upin != wpin )
+            {
+                digits   = upin ? sp10 : tp10;
+                exponent = k;
+                return;
+            }
+        }
+
+        final long    u   = s + 1;
+        final boolean uin = vbl + out <= s << 2;
+        final boolean win = (u << 2) + out <= vbr;
+
+        exponent = k + dk;
+
+        if( uin != win )
+        {
+            digits = uin ? s : u;
+            return;
+        }
+
+        // Both inside: the nearer one, or the even one on a tie.
+        final long cmp = vb - (s + u << 1);
+        digits = cmp < 0 || 0 == cmp && 0 == (s & 1) ? s : u;
+    }
+
+
+    /**
+     * @return Roughly g * cp / 2^127, with the bit below it "sticky".
+     */
+    private static long rop( final long g1, final long g0, final long cp )
+    {
+        final long x1  = Math.multiplyHigh( g0, cp );
+        final long y0  = g1 * cp;
+        final long y1  = Math.multiplyHigh( g1, cp );
+        final long z   = (y0 >>> 1) + x1;
+        final long vbp = y1 + (z >>> 63);
+
+        return vbp | (z & MASK_63) + MASK_63 >>> 63;
+    }
+
+
+    // floor( e * log10( 2 ) )
+    private static int flog10pow2( final int e )
+    {
+        return (int) (e * 661_971_961_083L >> 41);
+    }
+
+
+    // floor( e * log10( 2 ) + log10( 3/4 ) )
+    private static int flog10threeQuartersPow2( final int e )
+    {
+        return (int) (e * 661_971_961_083L + -274_743_187_321L >> 41);
+    }
+
+
+    // floor( e * log2( 10 ) )
+    private static int flog2pow10( final int e )
+    {
+        return (int) (e * 913_124_641_741L >> 38);
+    }
+}
@@ -26,14 +26,29 @@ package dev.v2.j2son;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.security.InvalidParameterException;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -88,44 +103,367 @@ public class Json
     }
 
 
-    protected final String key;
-    protected final Object val;
+    /**
+     * Parses UTF-8 encoded JSON directly, without decoding it into a String.
+     *
+     * @param input  Buffer holding the JSON.
+     * @param offset Index of the first byte of JSON.
+     * @param length Number of bytes of JSON.
+     */
+    public static Json parse( final byte[] input, final int offset, final int length ) throws IOException, InvalidJsonException
+    {
+        final Json js = JsonParser.parse( input, offset, length );
+        return js;
+    }
 
-    protected final int type;
 
-    private int lookahead;
+    /**
+     * Parses JSON, taking its object keys from the given cache rather than
+     * the shared one; e.g., a cache kept for one feed, whose keys would
+     * otherwise keep pushing each other out of the shared cache.
+     *
+     * @see JsonKeyCache
+     */
+    public static Json parse( final String input, final JsonKeyCache keys ) throws IOException, InvalidJsonException
+    {
+        final byte[] bytes = input.getBytes( StandardCharsets.UTF_8 );
+        return JsonParser.parse( bytes, 0, bytes.length, keys );
+    }
 
 
-    Json( final Json j, final int lookahead )
+    public static Json parse( final byte[] input, final int offset, final int length, final JsonKeyCache keys ) throws IOException, InvalidJsonException
     {
-        this.key  = j.key;
-        this.val  = j.val;
-        this.type = j.type;
+        return JsonParser.parse( input, offset, length, keys );
+    }
+
 
-        this.lookahead = lookahead;
+    public static Json parse( final InputStream input, final JsonKeyCache keys ) throws IOException, InvalidJsonException
+    {
+        return JsonParser.parse( input, keys );
     }
 
 
-    public Json( final Object val )
+    /**
+     * Parses UTF-8 encoded JSON from a stream, through one fixed-size buffer.
+     * The stream is read to its end, but is not closed.
+     */
+    public static Json parse( final InputStream input ) throws IOException, InvalidJsonException
     {
-        this.key = null;
-        this.val = val;
+        final Json js = JsonParser.parse( input );
+        return js;
+    }
 
-        this.type = determineType();
+
+    /**
+     * Parses JSON from a character stream, without collecting it into a
+     * String.  The reader is read to its end, but is not closed.
+     */
+    public static Json parse( final Reader input ) throws IOException, InvalidJsonException
+    {
+        final Json js = JsonParser.parse( new ReaderInputStream( input ) );
+        return js;
     }
 
 
     /**
-     * Package level; only JsonParser should be able to make one of these.
+     * Parses a UTF-8 encoded JSON file, streaming it through one fixed-size
+     * buffer rather than loading the whole file.
+     */
+    public static Json parse( final Path input ) throws IOException, InvalidJsonException
+    {
+        try( final InputStream is = Files.newInputStream( input ) )
+        {
+            final Json js = JsonParser.parse( is );
+            return js;
+        }
+    }
+
+
+    /**
+     * Parses a UTF-8 encoded JSON file through memory mappings of it, rather
+     * than by reading it.  Files over 2 GB are mapped a window at a time, and
+     * repeated parses of the same file are served from the OS page cache.
+     */
+    public static Json parseMapped( final Path input ) throws IOException, InvalidJsonException
+    {
+        try( final FileChannel fc = FileChannel.open( input, StandardOpenOption.READ ) )
+        {
+            final Json js = JsonParser.parse( new MappedInputStream( fc, 0, fc.size() ) );
+            return js;
+        }
+    }
+
+
+    /**
+     * Parses JSON using all cores when its top level is one huge array; the
+     * array is split between top-level elements, and the pieces are parsed
+     * in parallel.  Any other JSON is parsed as usual.
+     */
+    public static Json parseParallel( final byte[] input, final int offset, final int length ) throws IOException, InvalidJsonException
+    {
+        return JsonArraySplitter.parse( input, offset, length );
+    }
+
+
+    /**
+     * Parses a file in parallel; see parseParallel( byte[], int, int ).
+     * The file is memory-mapped, so it may be larger than 2 GB.
+     */
+    public static Json parseParallel( final Path input ) throws IOException, InvalidJsonException
+    {
+        try( final FileChannel fc = FileChannel.open( input, StandardOpenOption.READ ) )
+        {
+            return JsonArraySplitter.parse( fc );
+        }
+    }
+
+
+    /**
+     * Parses JSON lazily: objects, arrays and strings are only parsed when
+     * they are first used (e.g., by getMap(), getList() or find()), so
+     * reading a few fields out of a large document only costs a quick skip
+     * over the rest.  The input must not change while the result is in use.
+     * <p>
+     * Since most of the input is only skimmed, errors in a value may surface
+     * when it is used, as UncheckedJsonException.
+     */
+    public static Json parseLazy( final String input ) throws IOException, InvalidJsonException
+    {
+        final byte[] bytes = input.getBytes( StandardCharsets.UTF_8 );
+        return LazyJson.read( bytes, 0, bytes.length );
+    }
+
+
+    public static Json parseLazy( final byte[] input, final int offset, final int length ) throws IOException, InvalidJsonException
+    {
+        return LazyJson.read( input, offset, length );
+    }
+
+
+    public static Json parseLazy( final Path input ) throws IOException, InvalidJsonException
+    {
+        final byte[] bytes = Files.readAllBytes( input );
+        return LazyJson.read( bytes, 0, bytes.length );
+    }
+
+
+    /**
+     * Parses JSON to a given depth: the objects and arrays in the first
+     * depth levels are parsed right away, while deeper ones (and strings)
+     * are kept as their range of the input, to be parsed if, and when, they
+     * are used, as by parseLazy( String ), which is the same as depth 1.
+     * At depth 0, nothing is parsed until it is used.
+     * <p>
+     * E.g., at depth 2, the fields of an envelope such as
+     * {"headers":{...},"payload":{...}} can be read without the payload (or
+     * anything in the headers deeper than their fields) being more than
+     * skimmed.
+     */
+    public static Json parseLazy( final String input, final int depth ) throws IOException, InvalidJsonException
+    {
+        final byte[] bytes = input.getBytes( StandardCharsets.UTF_8 );
+        return LazyJson.read( bytes, 0, bytes.length, depth );
+    }
+
+
+    public static Json parseLazy( final byte[] input, final int offset, final int length, final int depth ) throws IOException, InvalidJsonException
+    {
+        return LazyJson.read( input, offset, length, depth );
+    }
+
+
+    public static Json parseLazy( final Path input, final int depth ) throws IOException, InvalidJsonException
+    {
+        final byte[] bytes = Files.readAllBytes( input );
+        return LazyJson.read( bytes, 0, bytes.length, depth );
+    }
+
+
+    /**
+     * Parses JSON, keeping each number as its text rather than converting
+     * it.  Numbers then lose nothing, not even digits beyond the precision
+     * of a long or double: getBigInteger() and getBigDecimal() are exact,
+     * and asJSON() writes each number just as it was.  A number is only
+     * converted when its value is asked for, which is also cheaper when
+     * most of them never are.
+     * <p>
+     * Integers too big for a long are JSON_LONG, with a BigInteger value;
+     * getLong() throws ArithmeticException for them.
+     */
+    public static Json parseExact( final String input ) throws IOException, InvalidJsonException
+    {
+        return JsonParser.parseExact( input );
+    }
+
+
+    /**
+     * Numbers are copied out of input, so the tree holds no reference to
+     * it, and the array may be reused afterwards.
+     */
+    public static Json parseExact( final byte[] input, final int offset, final int length ) throws IOException, InvalidJsonException
+    {
+        return JsonParser.parseExact( input, offset, length );
+    }
+
+
+    public static Json parseExact( final InputStream input ) throws IOException, InvalidJsonException
+    {
+        return JsonParser.parseExact( input );
+    }
+
+
+    public static Json parseExact( final Path input ) throws IOException, InvalidJsonException
+    {
+        try( final InputStream is = Files.newInputStream( input ) )
+        {
+            return JsonParser.parseExact( is );
+        }
+    }
+
+
+    /**
+     * Parses JSON into a JsonTape: a few primitive arrays instead of a tree
+     * of objects, so memory use stays proportional to the size of the input.
      *
-     * @param val
-     * @param c
+     * @return A Json view of the top-level value on the tape.
+     */
+    public static Json parseTape( final String input ) throws IOException, InvalidJsonException
+    {
+        final JsonTapeBuilder builder = new JsonTapeBuilder();
+        JsonParser.parse( input, builder );
+        return builder.tape().root();
+    }
+
+
+    public static Json parseTape( final byte[] input, final int offset, final int length ) throws IOException, InvalidJsonException
+    {
+        final JsonTapeBuilder builder = new JsonTapeBuilder();
+        JsonParser.parse( input, offset, length, builder );
+        return builder.tape().root();
+    }
+
+
+    public static Json parseTape( final InputStream input ) throws IOException, InvalidJsonException
+    {
+        final JsonTapeBuilder builder = new JsonTapeBuilder();
+        JsonParser.parse( input, builder );
+        return builder.tape().root();
+    }
+
+
+    public static Json parseTape( final Path input ) throws IOException, InvalidJsonException
+    {
+        try( final InputStream is = Files.newInputStream( input ) )
+        {
+            return parseTape( is );
+        }
+    }
+
+
+    /**
+     * Parses JSON, reporting each value to a handler instead of building a
+     * tree.
      */
-    Json( final Object val, final int c )
+    public static void parse( final String input, final JsonHandler handler ) throws IOException, InvalidJsonException
     {
-        this.key       = null;
-        this.val       = val;
-        this.lookahead = c;
+        JsonParser.parse( input, handler );
+    }
+
+
+    public static void parse( final byte[] input, final int offset, final int length, final JsonHandler handler ) throws IOException, InvalidJsonException
+    {
+        JsonParser.parse( input, offset, length, handler );
+    }
+
+
+    public static void parse( final InputStream input, final JsonHandler handler ) throws IOException, InvalidJsonException
+    {
+        JsonParser.parse( input, handler );
+    }
+
+
+    public static void parse( final Path input, final JsonHandler handler ) throws IOException, InvalidJsonException
+    {
+        try( final InputStream is = Files.newInputStream( input ) )
+        {
+            JsonParser.parse( is, handler );
+        }
+    }
+
+
+    /**
+     * Parses newline-delimited JSON (one value per line), with the lines
+     * parsed in parallel, but handed to the consumer in order.
+     */
+    public static void parseLines( final Path input, final Consumer< ? super Json > consumer ) throws IOException, InvalidJsonException
+    {
+        try( final InputStream is = Files.newInputStream( input ) )
+        {
+            parseLines( is, consumer );
+        }
+    }
+
+
+    public static void parseLines( final InputStream input, final Consumer< ? super Json > consumer ) throws IOException, InvalidJsonException
+    {
+        new JsonLines( input ).forEach( consumer );
+    }
+
+
+    /**
+     * Parses newline-delimited JSON into an ordered stream, whose lines are
+     * parsed in parallel.  Closing the stream closes the file.
+     * <p>
+     * Errors surface from the stream as UncheckedIOException or
+     * UncheckedJsonException.
+     */
+    public static Stream< Json > parseLines( final Path input ) throws IOException
+    {
+        final InputStream is = Files.newInputStream( input );
+
+        try
+        {
+            return parseLines( is ).onClose( () -> {
+                try
+                {
+                    is.close();
+                }
+                catch( IOException ioex )
+                {
+                    throw new UncheckedIOException( ioex );
+                }
+            } );
+        }
+        catch( IOException | RuntimeException ex )
+        {
+            is.close();
+            throw ex;
+        }
+    }
+
+
+    /**
+     * Parses newline-delimited JSON into an ordered stream, whose lines are
+     * parsed in parallel.  The input stream is not closed.
+     */
+    public static Stream< Json > parseLines( final InputStream input ) throws IOException
+    {
+        final JsonLines lines = new JsonLines( input );
+
+        return StreamSupport.stream( Spliterators.spliteratorUnknownSize( lines, Spliterator.ORDERED | Spliterator.NONNULL ), false );
+    }
+
+
+    protected final String key;
+    protected final Object val;
+
+    protected final int type;
+
+
+    public Json( final Object val )
+    {
+        this.key = null;
+        this.val = val;
 
         this.type = determineType();
     }
@@ -142,24 +480,38 @@ public class Json
     }
 
 
+    /**
+     * @deprecated Object members are no longer wrapped; the parser puts a
+     * member's own node, holding its key, in the map.  The lookahead
+     * character is ignored.
+     */
+    @Deprecated
     public Json( final String key, final Json val, int c )
     {
-        if( null == key ) throw new InvalidParameterException( "JSON key cannot be null" );
+        this( key, (Object) val );
+    }
 
-        this.key       = key;
-        this.val       = val;
-        this.lookahead = c;
 
-        this.type = determineType();
+    /**
+     * For subclasses which supply their value (through getValue()) some other
+     * way than holding it.
+     */
+    Json( final String key, final int type )
+    {
+        this( key, (Object) null, type );
     }
 
 
     /**
-     * Package level; only JsonParser should be able to make one of these.
-     *
-     * @return
+     * For the parser, which already knows the type of each value; the key
+     * may be null.
      */
-    int lookahead() {return this.lookahead;}
+    Json( final String key, final Object val, final int type )
+    {
+        this.key  = key;
+        this.val  = val;
+        this.type = type;
+    }
 
 
     private int determineType()
@@ -177,7 +529,7 @@ public class Json
 
     public boolean isNull()
     {
-        return null == val;
+        return JSON_NULL == type;
     }
 
     public boolean isBoolean()
@@ -224,37 +576,57 @@ public class Json
     public boolean getBoolean()
     {
         if( JsonParser.DEBUG_JSON ) dump();
-        return isBoolean() ? (Boolean) val : false;
+        return isBoolean() ? (Boolean) getValue() : false;
     }
 
     public int getInt()
     {
         if( JsonParser.DEBUG_JSON ) dump();
-        return isLong() ? (Integer) val : -1;
+        return isLong() ? (Integer) getValue() : -1;
     }
 
     public long getLong()
     {
         if( JsonParser.DEBUG_JSON ) dump();
-        return isLong() ? (Long) val : -1L;
+        return isLong() ? (Long) getValue() : -1L;
     }
 
     public double getDouble()
     {
         if( JsonParser.DEBUG_JSON ) dump();
-        return isDouble() ? (Double) val : -1.0d;
+        return isDouble() ? (Double) getValue() : -1.0d;
+    }
+
+    /**
+     * @return The exact value of an integer, however big; or null if this
+     * is not one.
+     */
+    public BigInteger getBigInteger()
+    {
+        return isLong() ? BigInteger.valueOf( getLong() ) : null;
+    }
+
+    /**
+     * @return The value of a number, as a BigDecimal; or null if this is
+     * not one.  Only exact for numbers parsed by parseExact().
+     */
+    public BigDecimal getBigDecimal()
+    {
+        if( isLong() ) return BigDecimal.valueOf( getLong() );
+
+        return isDouble() ? BigDecimal.valueOf( getDouble() ) : null;
     }
 
     public List getArray()
     {
         if( JsonParser.DEBUG_JSON ) dump();
-        return isArray() ? (List) val : null;
+        return isArray() ? (List) getValue() : null;
     }
 
     public Map getObject()
     {
         if( JsonParser.DEBUG_JSON ) dump();
-        return isObject() ? (Map) val : null;
+        return isObject() ? (Map) getValue() : null;
     }
 
 
@@ -308,166 +680,226 @@ public class Json
 
     public String asJSON( final boolean useKey )
     {
-        if( val instanceof Long ) return (toKey( useKey ) + val);
-        else if( val instanceof Double ) return (toKey( useKey ) + val);
-        else if( val instanceof String ) return (toKey( useKey ) + "\"" + val + "\"");
-        else if( val instanceof Boolean )
-        {
-            final String content = ((Boolean) val) ? JSON_LIT_TRUE : JSON_LIT_FALSE;
-            return (toKey( useKey ) + content);
-        }
-        else if( val instanceof List )
-        {
-            final List          list = (List) val;
-            int                 i    = 0;
-            final StringBuilder sb   = new StringBuilder();
-            for( final Object o : list )
-            {
-                if( 0 < i++ ) sb.append( "," );
-
-                if( o instanceof Json )
-                {
-                    final Json   j       = (Json) o;
-                    final String content = j.asJSON( false );
-                    sb.append( content );
-                }
-            }
-            return toKey( useKey ) + "[" + sb.toString() + "]";
-        }
-        else if( val instanceof Map )
-        {
-            final Map           map = (Map) val;
-            int                 i   = 0;
-            final StringBuilder sb  = new StringBuilder();
+        final StringBuilder sb = new StringBuilder( toKey( useKey ) );
 
-            final Set keys = map.keySet();
-            for( final Object k : keys )
-            {
-                if( 0 < i++ ) sb.append( "," );
-                final Object v = map.get( k );
+        // NOTE - Written straight into the one builder; a StringBuilder never fails.
+        final JsonWriter writer = new JsonWriter( sb, " : " );
+        writer.value( this );
+        writer.drain();
 
-                if( v instanceof Json )
-                {
-                    final Json   j       = (Json) v;
-                    final String content = j.asJSON();
+        if( DEBUG_VERBOSE ) System.out.println( "        --> asJSON: " + sb );
 
-                    if( DEBUG_VERBOSE ) System.out.println( "    ==> content: " + content );
+        return sb.toString();
+    }
 
-                    sb.append( content );
-                }
-            }
 
-            final String mapAsJSON = toKey( useKey ) + "{" + sb.toString() + "}";
+    /**
+     * Writes this value (without its key) as compact JSON, streaming it
+     * through a JsonWriter rather than building a String.
+     */
+    public void writeTo( final Appendable out ) throws IOException
+    {
+        new JsonWriter( out ).write( this );
+    }
 
-            if( DEBUG_VERBOSE ) System.out.println( "        --> map: " + mapAsJSON );
 
-            return mapAsJSON;
+    /**
+     * Writes this value as UTF-8 encoded JSON; see writeTo( Appendable ).
+     * The stream is flushed, but not closed.
+     */
+    public void writeTo( final OutputStream out ) throws IOException
+    {
+        try( final JsonWriter writer = new JsonWriter( out ) )
+        {
+            writer.write( this );
         }
-        else if( null == val ) return (toKey( useKey ) + JSON_LIT_NULL);
-        else return "";
     }
 
 
-    @SuppressWarnings( "unchecked" )
-    public Map< String, Json > getMap()
+    /**
+     * Writes this value as UTF-8 encoded JSON, through a pooled buffer, to a
+     * file or socket (or any channel), which is left open.
+     */
+    public void writeTo( final WritableByteChannel out ) throws IOException
     {
-        return isObject() ? (Map< String, Json >) val : null;
+        try( final JsonWriter writer = new JsonWriter( out ) )
+        {
+            writer.write( this );
+        }
     }
 
-    @SuppressWarnings( "unchecked" )
-    public List< Json > getList()
+
+    /**
+     * @return This value (without its key) as canonical JSON (RFC 8785):
+     * the same data always gives the same text, and so, in UTF-8, the same
+     * bytes to hash or sign.
+     * @see JsonWriter#canonical()
+     */
+    public String asCanonicalJSON()
     {
-        return isArray() ? (List< Json >) val : null;
+        final StringBuilder sb     = new StringBuilder();
+        final JsonWriter    writer = new JsonWriter( sb ).canonical();
+
+        writer.value( this );
+        writer.drain();
+
+        return sb.toString();
     }
 
 
-    public Json find( final String keySpec )
+    /**
+     * Writes this value as canonical JSON (RFC 8785), UTF-8 encoded; e.g., to
+     * a DigestOutputStream.  The stream is flushed, but not closed.
+     */
+    public void writeCanonicalTo( final OutputStream out ) throws IOException
     {
-        if( DEBUG_SEARCH ) System.out.println( "keySpec: " + keySpec );
+        try( final JsonWriter writer = new JsonWriter( out ).canonical() )
+        {
+            writer.write( this );
+        }
+    }
 
-        // Search term is null or empty-string.
-        if( null == keySpec || 0 == keySpec.length() ) return this;
 
-        final String[] keys   = keySpec.split( "\\.", 2 );
-        final String   prefix = keys[0];
+    /**
+     * @return The elements of an array of integers, or null if this is not
+     * one.
+     */
+    public long[] toLongArray()
+    {
+        if( !isArray() ) return null;
 
-        if( DEBUG_SEARCH ) System.out.println( "  prefix: " + prefix );
+        final List< Json > list   = getList();
+        final long[]       values = new long[list.size()];
 
-        final boolean isArraySpec = prefix.startsWith( "[" ) && prefix.endsWith( "]" );
+        int i = 0;
+        for( final Json j : list )
+        {
+            if( !j.isLong() ) return null;
+            values[i++] = j.getLong();
+        }
 
-        return isArraySpec ? findInArray( keys ) : findInObject( keys );
+        return values;
     }
 
 
-    private Json findInObject( final String[] keys )
+    /**
+     * @return The elements of an array of numbers (integers are widened), or
+     * null if this is not one.
+     */
+    public double[] toDoubleArray()
     {
-        if( !isObject() ) return null;
+        if( !isArray() ) return null;
 
-        final String prefix = keys[0];
+        final List< Json > list   = getList();
+        final double[]     values = new double[list.size()];
 
-        final Map< String, Json > map = getMap();
+        int i = 0;
+        for( final Json j : list )
+        {
+            if( j.isLong() ) values[i++] = j.getLong();
+            else if( j.isDouble() ) values[i++] = j.getDouble();
+            else return null;
+        }
 
-        // If keySpec token is not one of the children, abort.
-        if( !map.containsKey( prefix ) ) return null;
+        return values;
+    }
 
-        final Json child = map.get( prefix );
 
-        // If key exists, but there is no 'Json' value here; abort.
-        if( null == child ) return null;
+    /**
+     * Performs the action for each integer element of an array.
+     */
+    public void forEachLong( final LongConsumer action )
+    {
+        if( !isArray() ) return;
 
-        if( DEBUG_JSON_WALK ) child.dump();
+        for( final Json j : getList() )
+        {
+            if( j.isLong() ) action.accept( j.getLong() );
+        }
+    }
 
-        // If we have no more keySpec, return the child.
-        if( 1 == keys.length ) return child;
 
-        final String suffix = keys[1];
+    /**
+     * Performs the action for each number (integers are widened) in an array.
+     */
+    public void forEachDouble( final DoubleConsumer action )
+    {
+        if( !isArray() ) return;
 
-        // Recursively walk the rest of the keySpec...
-        return child.find( suffix );
+        for( final Json j : getList() )
+        {
+            if( j.isLong() ) action.accept( j.getLong() );
+            else if( j.isDouble() ) action.accept( j.getDouble() );
+        }
     }
 
 
-    private Json findInArray( final String[] keys )
+    @SuppressWarnings( "unchecked" )
+    public Map< String, Json > getMap()
     {
-        if( !isArray() ) return null;
+        return isObject() ? (Map< String, Json >) getValue() : null;
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public List< Json > getList()
+    {
+        return isArray() ? (List< Json >) getValue() : null;
+    }
 
-        final String prefix = keys[0];
 
-        final int    endIndex    = prefix.length() - 1;
-        final String indexString = prefix.substring( 1, endIndex );
+    /**
+     * @return The element at index i of an array, or null if there is none;
+     * for walking a tree, without unpacking a packed array.
+     */
+    Json element( final int i )
+    {
+        final List< Json > list = getList();
 
-        System.out.println( "indexString: " + indexString );
+        return i < list.size() ? list.get( i ) : null;
+    }
 
-        try
-        {
-            final int          index    = Integer.parseInt( indexString );
-            final List< Json > list     = getList();
-            final int          maxIndex = list.size() - 1;
 
-            // If the index is OOB for this array, abort.
-            if( index < 0 || index > maxIndex ) return null;
+    /**
+     * @return The elements of an array, to be read and not changed; for
+     * walking a tree, without unpacking a packed array.
+     */
+    List< Json > elements()
+    {
+        return getList();
+    }
 
-            final Json child = list.get( index );
 
-            if( DEBUG_JSON_WALK ) child.dump();
+    /**
+     * @return The value at a path, such as "a.b.[3].c", or null if there is
+     * none; see JsonPath.  The path is compiled once, and then cached.  A "*"
+     * segment is a wildcard, no longer the key "*".
+     */
+    public Json find( final String keySpec )
+    {
+        if( DEBUG_SEARCH ) System.out.println( "keySpec: " + keySpec );
 
-            if( 1 == keys.length ) return child;
+        // Search term is null or empty-string.
+        if( null == keySpec || 0 == keySpec.length() ) return this;
 
-            final String suffix = keys[1];
+        return JsonPath.cached( keySpec ).find( this );
+    }
 
-            return child.find( suffix );
-        }
-        catch( NumberFormatException e )
-        {
-            // If the index is not an integer, abort.
-            return null;
-        }
+
+    /**
+     * @return Every value at a path, which may have wildcards, such as
+     * "items.[*].id"; see JsonPath.
+     */
+    public List< Json > findAll( final String keySpec )
+    {
+        return JsonPath.cached( null == keySpec ? "" : keySpec ).findAll( this );
     }
 
 
     @Override
     public String toString()
     {
+        final Object val = getValue();
+
         return null == val ? "(null)" : val.toString();
     }
 
@@ -539,14 +971,7 @@ public class Json
     }
 
 
-    private static String readFile( String path, Charset encoding ) throws IOException
-    {
-        byte[] encoded = Files.readAllBytes( Paths.get( path ) );
-        return new String( encoded, encoding );
-    }
-
-
-    private static String loadFile( String path ) throws IOException, SecurityException
+    private static Path findFile( String path, final boolean isEcho ) throws IOException, SecurityException
     {
         String orig = new StringBuilder( path ).toString();
 
@@ -586,12 +1011,19 @@ public class Json
                 if( DEBUG_TEST_FILES ) System.out.println( "Reading [" + path + "]..." );
             }
 
-            String json = readFile( path, StandardCharsets.UTF_8 );
+            final Path file = Paths.get( path );
+
+            if( isEcho && (DEBUG_IO || DEBUG_TEST) )
+            {
+                System.out.println( ">>> ---- " + TEXT_COLOR_GREEN + orig + TEXT_COLOR_SUFFIX + " ----" );
 
-            if( DEBUG_IO || DEBUG_TEST ) System.out.println( ">>> ---- " + TEXT_COLOR_GREEN + orig + TEXT_COLOR_SUFFIX + " ----" );
-            if( DEBUG_IO || DEBUG_TEST ) System.out.println( ">>> >" + TEXT_COLOR_CYAN + json + TEXT_COLOR_SUFFIX + "<" );
+                // NOTE - Echo the input by streaming it; never hold the whole file in memory.
+                System.out.print( ">>> >" + TEXT_COLOR_CYAN );
+                Files.copy( file, System.out );
+                System.out.println( TEXT_COLOR_SUFFIX + "<" );
+            }
 
-            return json;
+            return file;
         }
         catch( IOException ioex )
         {
@@ -610,18 +1042,27 @@ public class Json
     {
         int argc = args.length;
 
-        if( argc < 1 )
+        // NOTE - With -c, only the file's canonical JSON is printed, for run-canonical-tests to compare.
+        final boolean isCanonical = 0 < argc && "-c".equals( args[0] );
+
+        if( argc < (isCanonical ? 2 : 1) )
         {
-            System.err.println( "Usage: java com.crinqle.j2son.Json <file>" );
+            System.err.println( "Usage: java com.crinqle.j2son.Json [-c] <file>" );
             System.exit( 1 );
         }
 
-        final String path = args[0];
+        final String path = args[isCanonical ? 1 : 0];
 
         try
         {
-            final String input = loadFile( path );
-            final Json   j     = parse( input );
+            final Path input = findFile( path, !isCanonical );
+            final Json j     = parse( input );
+
+            if( isCanonical )
+            {
+                System.out.println( j.asCanonicalJSON() );
+                System.exit( 0 );
+            }
 
             if( DEBUG_TEST ) System.out.println( "<<< " + TEXT_COLOR_YELLOW + j + TEXT_COLOR_SUFFIX );
 
@@ -0,0 +1,387 @@
+/*
+ * Copyright (c) 2013-2025 - Troy Wu
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.v2.j2son;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Parses a document whose top level is one huge array on all cores.
+ * <p>
+ * A quick pre-scan tracks nesting and string/escape state (so that a comma
+ * inside a string is never chosen), and picks commas between top-level
+ * elements which split the array into roughly equal pieces.  Each piece is
+ * parsed on its own thread, and the elements are stitched back together in
+ * order.
+ * <p>
+ * Anything else (a top-level object or scalar, a small array) is simply
+ * parsed sequentially.  If any piece turns out to be invalid, the whole
+ * document is re-parsed sequentially, so errors read just as JsonParser
+ * reports them.
+ */
+final class JsonArraySplitter
+{
+    static final int MIN_PIECE_SIZE = 1 << 20; // 1 MB
+
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+
+    /**
+     * Pre-scan state; carried across buffers when scanning a file.
+     */
+    private final long pieceSize;
+
+    private long    nextSplit;        // Earliest offset for the next split.
+    private long[]  splits = new long[16];
+    private int     splitCount = 0;
+    private long    open       = -1;  // Offset of the top-level '['.
+    private long    close      = -1;  // Offset of its ']'.
+    private boolean isArray    = true;
+    private int     depth      = 0;
+    private boolean isInString = false;
+    private boolean isEscaped  = false;
+
+
+    private JsonArraySplitter( final long length )
+    {
+        final int pieces = 4 * ForkJoinPool.getCommonPoolParallelism();
+
+        this.pieceSize = Math.max( MIN_PIECE_SIZE, length / pieces );
+    }
+
+
+    static Json parse( final byte[] json, final int offset, final int length ) throws IOException, InvalidJsonException
+    {
+        final JsonArraySplitter splitter = new JsonArraySplitter( length );
+
+        splitter.scan( json, offset, offset + length, 0 );
+
+        if( !splitter.canSplit() ) return JsonParser.parse( json, offset, length );
+
+        final long[] bounds = splitter.bounds();
+        final Pieces pieces = new Pieces( bounds, i -> {
+            final int start = offset + (int) bounds[i];
+            final int end   = offset + (int) bounds[i + 1];
+            return new JsonInput( json, start, end - start );
+        } );
+
+        final Json j = pieces.parse();
+
+        return null != j ? j : JsonParser.parse( json, offset, length );
+    }
+
+
+    static Json parse( final FileChannel fc ) throws IOException, InvalidJsonException
+    {
+        final long              size     = fc.size();
+        final JsonArraySplitter splitter = new JsonArraySplitter( size );
+
+        try( final InputStream is = new MappedInputStream( fc, 0, size ) )
+        {
+            final byte[] buf    = new byte[SCAN_BUFFER_SIZE];
+            long         offset = 0;
+            int          n;
+
+            while( !splitter.isDone() && 0 <= (n = is.read( buf, 0, buf.length )) )
+            {
+                splitter.scan( buf, 0, n, offset );
+                offset += n;
+            }
+        }
+
+        if( splitter.canSplit() )
+        {
+            final long[] bounds = splitter.bounds();
+            final Pieces pieces = new Pieces( bounds, i -> new JsonInput( new MappedInputStream( fc, bounds[i], bounds[i + 1] ) ) );
+
+            final Json j = pieces.parse();
+
+            if( null != j ) return j;
+        }
+
+        try( final InputStream is = new MappedInputStream( fc, 0, size ) )
+        {
+            return JsonParser.parse( is );
+        }
+    }
+
+
+    private boolean isDone()
+    {
+        return !isArray || 0 <= close;
+    }
+
+
+    private boolean canSplit()
+    {
+        return isArray && 0 <= close && 0 < splitCount;
+    }
+
+
+    /**
+     * @return Offsets of the pieces; piece i spans [bounds[i], bounds[i + 1]).
+     */
+    private long[] bounds()
+    {
+        final long[] bounds = new long[splitCount + 2];
+
+        bounds[0] = open + 1;
+        for( int i = 0; i < splitCount; ++i ) bounds[i + 1] = splits[i] + 1;
+        bounds[splitCount + 1] = close;
+
+        return bounds;
+    }
+
+
+    /**
+     * Scans buf[from, to), which sits at the given offset in the input.
+     */
+    private void scan( final byte[] buf, final int from, final int to, final long offset )
+    {
+        // NOTE - Input offsets are relative to 'from' for in-memory input, absolute for files.
+        final long base = offset - from;
+
+        for( int i = from; i < to && !isDone(); ++i )
+        {
+            final int c = buf[i];
+
+            if( isInString )
+            {
+                if( isEscaped ) isEscaped = false;
+                else if( '\\' == c ) isEscaped = true;
+                else if( '"' == c ) isInString = false;
+                continue;
+            }
+
+            if( open < 0 )
+            {
+                switch( c )
+                {
+                    case 0: // NUL
+                    case 9: // tab
+                    case 10: // LF
+                    case 13: // CR
+                    case 32: // SP
+                        continue;
+
+                    case '[':
+                        open      = base + i;
+                        nextSplit = open + pieceSize;
+                        depth     = 1;
+                        continue;
+
+                    default:
+                        isArray = false;
+                        return;
+                }
+            }
+
+            switch( c )
+            {
+                case '"':
+                    isInString = true;
+                    break;
+
+                case '[':
+                case '{':
+                    ++depth;
+                    break;
+
+                case ']':
+                case '}':
+                    if( 0 == --depth ) close = base + i;
+                    break;
+
+                case ',':
+                    if( 1 == depth && base + i >= nextSplit )
+                    {
+                        if( splitCount == splits.length ) splits = Arrays.copyOf( splits, 2 * splitCount );
+
+                        splits[splitCount++] = base + i;
+                        nextSplit            = base + i + pieceSize;
+                    }
+                    break;
+
+                default:
+                    break;
+            }
+        }
+    }
+
+
+    private interface PieceSource
+    {
+        JsonInput open( int i ) throws IOException;
+    }
+
+
+    /**
+     * The pieces of one array, parsed in parallel.
+     */
+    private static final class Pieces
+    {
+        final long[]      bounds;
+        final PieceSource source;
+
+        final Json[] results;
+
+        volatile boolean isInvalid = false;
+
+        Pieces( final long[] bounds, final PieceSource source )
+        {
+            this.bounds  = bounds;
+            this.source  = source;
+            this.results = new Json[bounds.length - 1];
+        }
+
+
+        /**
+         * @return The whole array, or null if some piece was invalid.
+         */
+        Json parse() throws IOException
+        {
+            try
+            {
+                ForkJoinPool.commonPool().invoke( new PieceTask( this, 0, results.length ) );
+            }
+            catch( UncheckedIOException uioex )
+            {
+                throw uioex.getCause();
+            }
+
+            if( isInvalid ) return null;
+
+            // NOTE - Pieces are fresh, so none has been unpacked yet.
+            int     size       = 0;
+            boolean areLongs   = true;
+            boolean areDoubles = true;
+            for( final Json piece : results )
+            {
+                size += piece.elements().size();
+                areLongs &= piece instanceof JsonLongArray;
+                areDoubles &= piece instanceof JsonDoubleArray;
+            }
+
+            // NOTE - Keep the array packed if every piece is packed the same way.
+            if( areLongs )
+            {
+                final long[] all = new long[size];
+                int          n   = 0;
+                for( final Json piece : results )
+                {
+                    final long[] values = ((JsonLongArray) piece).values();
+                    System.arraycopy( values, 0, all, n, values.length );
+                    n += values.length;
+                }
+                return new JsonLongArray( null, all );
+            }
+
+            if( areDoubles )
+            {
+                final double[] all = new double[size];
+                int            n   = 0;
+                for( final Json piece : results )
+                {
+                    final double[] values = ((JsonDoubleArray) piece).values();
+                    System.arraycopy( values, 0, all, n, values.length );
+                    n += values.length;
+                }
+                return new JsonDoubleArray( null, all );
+            }
+
+            final List< Json > all = new ArrayList<>( size );
+            for( final Json piece : results ) all.addAll( piece.elements() );
+
+            return new Json( all );
+        }
+
+
+        void parse( final int i ) throws IOException
+        {
+            if( isInvalid ) return;
+
+            final JsonTreeBuilder builder = new JsonTreeBuilder();
+
+            try
+            {
+                // NOTE - An empty piece (e.g., after the last comma in "[1,]") is invalid, just like an empty document.
+                builder.startArray();
+                JsonParser.parseElements( source.open( i ), builder );
+                builder.endArray();
+
+                results[i] = builder.root();
+            }
+            catch( InvalidJsonException jex )
+            {
+                isInvalid = true;
+            }
+        }
+    }
+
+
+    private static final class PieceTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Pieces pieces;
+        private final int    lo;
+        private final int    hi;
+
+        PieceTask( final Pieces pieces, final int lo, final int hi )
+        {
+            this.pieces = pieces;
+            this.lo     = lo;
+            this.hi     = hi;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if( 1 < hi - lo )
+            {
+                final int mid = (lo + hi) >>> 1;
+                invokeAll( new PieceTask( pieces, lo, mid ), new PieceTask( pieces, mid, hi ) );
+                return;
+            }
+
+            try
+            {
+                pieces.parse( lo );
+            }
+            catch( IOException ioex )
+            {
+                throw new UncheckedIOException( ioex );
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2013-2025 - Troy Wu
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.v2.j2son;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Pulls a few values out of JSON, by path, in one pass over the raw input,
+ * without building a tree of the rest; e.g., three fields from a large
+ * message.  Paths are as for Json.find() (and JsonPath).
+ * <p>
+ * Only members and elements on some path are descended into; everything
+ * else is skipped by matching brackets and quotes, as LazyJson does.  A
+ * value at the end of a path is parsed (into a tree) as usual.  Reading
+ * stops as soon as every path has been found, so the input is only checked
+ * as far as that.
+ * <p>
+ * Where the input has a key twice, the first one is found (a tree keeps the
+ * last).  Compile once, with compile(), to extract the same paths from many
+ * inputs.
+ */
+public final class JsonExtractor
+{
+    private final JsonPath[] paths;
+
+
+    private JsonExtractor( final JsonPath[] paths )
+    {
+        this.paths = paths;
+    }
+
+
+    public static JsonExtractor compile( final String... paths )
+    {
+        final JsonPath[] compiled = new JsonPath[paths.length];
+
+        for( int i = 0; i < paths.length; ++i ) compiled[i] = JsonPath.cached( paths[i] );
+
+        return new JsonExtractor( compiled );
+    }
+
+
+    /**
+     * @return The value at each path, in the same order as the paths; null
+     * for any which are not there.
+     */
+    public static Json[] extract( final String json, final String... paths ) throws IOException, InvalidJsonException
+    {
+        final byte[] bytes = json.getBytes( StandardCharsets.UTF_8 );
+        return compile( paths ).find( bytes, 0, bytes.length );
+    }
+
+
+    public static Json[] extract( final byte[] json, final int offset, final int length, final String... paths ) throws IOException, InvalidJsonException
+    {
+        return compile( paths ).find( json, offset, length );
+    }
+
+
+    public static Json[] extract( final InputStream json, final String... paths ) throws IOException, InvalidJsonException
+    {
+        return compile( paths ).find( json );
+    }
+
+
+    /**
+     * @return The value at each path, in the same order as the paths; null
+     * for any which are not there.
+     */
+    public Json[] find( final byte[] json, final int offset, final int length ) throws IOException, InvalidJsonException
+    {
+        return new Scan( new JsonInput( json, offset, length ) ).run();
+    }
+
+
+    public Json[] find( final InputStream json ) throws IOException, InvalidJsonException
+    {
+        return new Scan( new JsonInput( json ) ).run();
+    }
+
+
+    /**
+     * One pass over one input.  At each value, the paths still being looked
+     * for through it are listed (by their index in paths); the depth of the
+     * value is the segment each one is at.
+     */
+    private final class Scan
+    {
+        private final JsonInput in;
+        private final Json[]    found = new Json[paths.length];
+        private int             remaining = paths.length;
+
+
+        Scan( final JsonInput in )
+        {
+            this.in = in;
+        }
+
+
+        Json[] run() throws IOException, InvalidJsonException
+        {
+            final int c = in.skipWhitespace( in.read() );
+
+            if( -1 == c ) throw new InvalidJsonException( "JSON terminated in whitespace" );
+
+            final int[] all = new int[paths.length];
+            for( int i = 0; i < all.length; ++i ) all[i] = i;
+
+            if( 0 < remaining ) value( c, 0, all, all.length );
+
+            return found;
+        }
+
+
+        /**
+         * Scans a value whose first character, c, has already been read, for
+         * the paths active[0, n).
+         */
+        private void value( final int c, final int depth, final int[] active, final int n ) throws IOException, InvalidJsonException
+        {
+            boolean isEnd = false;
+            for( int i = 0; i < n; ++i ) isEnd |= depth == paths[active[i]].size();
+
+            if( isEnd )
+            {
+                // NOTE - Any other paths through this value are then followed in its tree, rather than in the input.
+                final Json json = JsonParser.parseValue( in, c );
+
+                for( int i = 0; i < n; ++i )
+                {
+                    final Json match = paths[active[i]].find( json, depth );
+
+                    if( null != match && null == found[active[i]] )
+                    {
+                        found[active[i]] = match;
+                        --remaining;
+                    }
+                }
+                return;
+            }
+
+            switch( c )
+            {
+                case '{':
+                    object( depth, active, n );
+                    break;
+
+                case '[':
+                    array( depth, active, n );
+                    break;
+
+                default:
+                    in.skipValue( c );
+                    break;
+            }
+        }
+
+
+        private void object( final int depth, final int[] active, final int n ) throws IOException, InvalidJsonException
+        {
+            final int[] next = new int[n];
+
+            int c = in.skipWhitespace( in.read() );
+            if( '}' == c ) return; // Empty object.
+
+            while( true )
+            {
+                if( '"' != c ) throw new InvalidJsonException( "No key (no starting double-quote) for object member." );
+
+                final String key = in.readKey();
+
+                if( ':' != in.skipWhitespace( in.read() ) ) throw new InvalidJsonException( "No ':' for object member." );
+
+                c = in.skipWhitespace( in.read() );
+
+                int m = 0;
+                for( int i = 0; i < n; ++i )
+                {
+                    if( null == found[active[i]] && paths[active[i]].matchesKey( depth, key ) ) next[m++] = active[i];
+                }
+
+                if( 0 < m ) value( c, depth + 1, next, m );
+                else in.skipValue( c );
+
+                if( 0 == remaining ) return; // NOTE - Everything is found; the rest of the input is never read.
+
+                c = in.skipWhitespace( in.read() );
+
+                if( '}' == c ) return;
+                if( ',' != c ) throw new InvalidJsonException( "Invalid character (not comma or end-curly) in map." );
+
+                c = in.skipWhitespace( in.read() );
+            }
+        }
+
+
+        private void array( final int depth, final int[] active, final int n ) throws IOException, InvalidJsonException
+        {
+            final int[] next = new int[n];
+
+            int c = in.skipWhitespace( in.read() );
+            if( ']' == c ) return; // Empty array.
+
+            for( int index = 0; ; ++index )
+            {
+                if( -1 == c ) throw new InvalidJsonException( "Unterminated array." );
+
+                int m = 0;
+                for( int i = 0; i < n; ++i )
+                {
+                    if( null == found[active[i]] && paths[active[i]].matchesIndex( depth, index ) ) next[m++] = active[i];
+                }
+
+                if( 0 < m ) value( c, depth + 1, next, m );
+                else in.skipValue( c );
+
+                if( 0 == remaining ) return;
+
+                c = in.skipWhitespace( in.read() );
+
+                if( ']' == c ) return;
+                if( ',' != c ) throw new InvalidJsonException( "Invalid character (not comma or end-bracket) in array." );
+
+                c = in.skipWhitespace( in.read() );
+            }
+        }
+    }
+}
@@ -0,0 +1,474 @@
+/*
+ * Copyright (c) 2013-2025 - Troy Wu
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.v2.j2son;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+
+
+/**
+ * A non-blocking parser, which accepts UTF-8 encoded JSON in chunks of any
+ * size, as they arrive (e.g., from a socket), and keeps its state across chunk
+ * boundaries.  The input is a sequence of whitespace-separated JSON values.
+ * <p>
+ * Each value is either reported to a JsonHandler as it is parsed, or built
+ * into a Json tree which can be collected with poll() once it is complete.
+ * <pre>
+ * JsonIncrementalParser p = new JsonIncrementalParser();
+ * while( channel.read( buf ) &gt;= 0 )
+ * {
+ *     buf.flip();
+ *     p.feed( buf );
+ *     buf.clear();
+ *     for( Json j = p.poll(); null != j; j = p.poll() ) ...
+ * }
+ * p.endOfInput();
+ * </pre>
+ * The only input held on to is the token in progress: a partial string,
+ * number or literal is buffered until its end arrives, and is then read by
+ * the same code JsonParser uses.
+ *
+ * @see JsonParser
+ */
+public final class JsonIncrementalParser
+{
+    // Parser states.
+    private static final int ST_VALUE        = 0; // Expecting a value.
+    private static final int ST_ARRAY_FIRST  = 1; // Expecting first element or ']'.
+    private static final int ST_ARRAY_NEXT   = 2; // Expecting ',' or ']'.
+    private static final int ST_OBJECT_FIRST = 3; // Expecting first key or '}'.
+    private static final int ST_OBJECT_KEY   = 4; // Expecting a key.
+    private static final int ST_OBJECT_COLON = 5; // Expecting ':'.
+    private static final int ST_OBJECT_NEXT  = 6; // Expecting ',' or '}'.
+    private static final int ST_STRING       = 7; // Inside a string (or key).
+    private static final int ST_NUMBER       = 8; // Inside a number.
+    private static final int ST_LITERAL      = 9; // Inside true, false or null.
+
+    private static final byte ARRAY  = 0;
+    private static final byte OBJECT = 1;
+
+    private final JsonHandler     handler;
+    private final JsonTreeBuilder builder; // NOTE - null when reporting to a caller's handler.
+    private final Queue< Json >   values = new ArrayDeque<>();
+
+    private byte[] containers = new byte[16];
+    private int    depth      = 0;
+
+    private int     state      = ST_VALUE;
+    private boolean hasValue   = false; // Has a top-level value been completed?
+    private boolean isEnded    = false;
+    private boolean isKey      = false; // Is the string in progress a key?
+    private boolean isEscaped  = false; // Was the last string byte a backslash?
+    private int     wordLength = 0;     // Length of the literal in progress.
+
+    private byte[] token    = new byte[64];
+    private int    tokenLen = 0;
+
+
+    /**
+     * Builds each top-level value into a Json tree; see poll().
+     */
+    public JsonIncrementalParser()
+    {
+        this.builder = new JsonTreeBuilder();
+        this.handler = builder;
+    }
+
+
+    /**
+     * Reports values to a handler as they are parsed.
+     */
+    public JsonIncrementalParser( final JsonHandler handler )
+    {
+        if( null == handler ) throw new NullPointerException( "JsonHandler cannot be null" );
+
+        this.builder = null;
+        this.handler = handler;
+    }
+
+
+    /**
+     * Consumes all remaining bytes of a chunk.
+     */
+    public void feed( final ByteBuffer chunk ) throws IOException, InvalidJsonException
+    {
+        if( isEnded ) throw new IllegalStateException( "Input has already ended." );
+
+        while( chunk.hasRemaining() )
+        {
+            process( chunk.get() & 0xFF );
+        }
+    }
+
+
+    /**
+     * Signals that no more input will arrive, finishing any value which was
+     * waiting for more (e.g., a top-level number).
+     *
+     * @throws InvalidJsonException if the input stopped part-way through a value.
+     */
+    public void endOfInput() throws IOException, InvalidJsonException
+    {
+        if( isEnded ) return;
+
+        isEnded = true;
+
+        switch( state )
+        {
+            case ST_STRING:
+                throw new InvalidJsonException( "JSON aborted in the middle of string." );
+
+            case ST_NUMBER:
+                endNumber();
+                break;
+
+            case ST_LITERAL:
+                endLiteral();
+                break;
+
+            default:
+                break;
+        }
+
+        if( 0 < depth )
+        {
+            switch( state )
+            {
+                case ST_ARRAY_FIRST:
+                    throw new InvalidJsonException( "Unterminated array." );
+
+                case ST_OBJECT_FIRST:
+                    throw new InvalidJsonException( "No key (no st arting double-quote) for object member." );
+
+                default:
+                    throw new InvalidJsonException( "JSON terminated in whitespace" );
+            }
+        }
+
+        if( !hasValue ) throw new InvalidJsonException( "JSON terminated in whitespace" );
+    }
+
+
+    /**
+     * @return The next completed top-level value, or null if there is none
+     * (yet).  Always null when reporting to a caller's handler.
+     */
+    public Json poll()
+    {
+        return values.poll();
+    }
+
+
+    private void process( final int b ) throws IOException, InvalidJsonException
+    {
+        switch( state )
+        {
+            case ST_STRING:
+                append( b );
+
+                if( isEscaped ) isEscaped = false;
+                else if( '\\' == b ) isEscaped = true;
+                else if( '"' == b ) endString();
+                return;
+
+            case ST_NUMBER:
+                if( isNumberChar( b ) )
+                {
+                    append( b );
+                    return;
+                }
+
+                // NOTE - JsonInput needs to see the byte which ends the number; it is then handed back.
+                append( b );
+                endNumber();
+                return;
+
+            case ST_LITERAL:
+                append( b );
+
+                if( tokenLen == wordLength ) endLiteral();
+                return;
+
+            default:
+                break;
+        }
+
+        switch( b )
+        {
+            case 0: // NUL
+            case 9: // tab
+            case 10: // LF
+            case 13: // CR
+            case 32: // SP
+                return;
+
+            default:
+                break;
+        }
+
+        switch( state )
+        {
+            case ST_VALUE:
+                startValue( b );
+                break;
+
+            case ST_ARRAY_FIRST:
+                if( ']' == b ) endContainer();
+                else startValue( b );
+                break;
+
+            case ST_ARRAY_NEXT:
+                if( ']' == b ) endContainer();
+                else if( ',' == b ) state = ST_VALUE;
+                else throw new InvalidJsonException( "Invalid character (not comma or end-bracket) in array." );
+                break;
+
+            case ST_OBJECT_FIRST:
+                if( '}' == b ) endContainer();
+                else startKey( b );
+                break;
+
+            case ST_OBJECT_KEY:
+                startKey( b );
+                break;
+
+            case ST_OBJECT_COLON:
+                if( ':' != b ) throw new InvalidJsonException( "No ':' for object member." );
+                state = ST_VALUE;
+                break;
+
+            default: // ST_OBJECT_NEXT
+                if( '}' == b ) endContainer();
+                else if( ',' == b ) state = ST_OBJECT_KEY;
+                else throw new InvalidJsonException( "Invalid character (not comma or end-curly) in map." );
+                break;
+        }
+    }
+
+
+    private void startValue( final int b ) throws IOException, InvalidJsonException
+    {
+        tokenLen = 0;
+
+        switch( b )
+        {
+            case '{':
+                startContainer( OBJECT );
+                handler.startObject();
+                state = ST_OBJECT_FIRST;
+                break;
+
+            case '[':
+                startContainer( ARRAY );
+                handler.startArray();
+                state = ST_ARRAY_FIRST;
+                break;
+
+            case '"':
+                isKey     = false;
+                isEscaped = false;
+                state     = ST_STRING;
+                break;
+
+            case 't':
+            case 'n':
+                append( b );
+                wordLength = 4;
+                state      = ST_LITERAL;
+                break;
+
+            case 'f':
+                append( b );
+                wordLength = 5;
+                state      = ST_LITERAL;
+                break;
+
+            default:
+                append( b );
+                state = ST_NUMBER;
+
+                // NOTE - Let JsonInput report a bad start to a number right away.
+                if( '-' != b && (b < '0' || b > '9') ) endNumber();
+                break;
+        }
+    }
+
+
+    private void startKey( final int b ) throws InvalidJsonException
+    {
+        if( '"' != b ) throw new InvalidJsonException( "No key (no st arting double-quote) for object member." );
+
+        tokenLen  = 0;
+        isKey     = true;
+        isEscaped = false;
+        state     = ST_STRING;
+    }
+
+
+    private void endString() throws IOException, InvalidJsonException
+    {
+        // NOTE - The buffered token includes the closing double-quote.
+        final JsonInput in = new JsonInput( token, 0, tokenLen );
+        final String    s  = isKey ? in.readKey() : in.readString();
+
+        if( isKey )
+        {
+            handler.key( s );
+            state = ST_OBJECT_COLON;
+        }
+        else
+        {
+            handler.stringValue( s );
+            endValue();
+        }
+    }
+
+
+    private void endNumber() throws IOException, InvalidJsonException
+    {
+        final JsonInput lexer = new JsonInput( token, 1, tokenLen - 1 );
+
+        endLiteral( lexer, lexer.parseLiteral( token[0] & 0xFF ) );
+
+        // NOTE - Anything the number didn't use (e.g., "1-2") comes after it.
+        if( lexer.position() < tokenLen )
+        {
+            final byte[] rest = Arrays.copyOfRange( token, lexer.position(), tokenLen );
+            for( final byte b : rest ) process( b & 0xFF );
+        }
+    }
+
+
+    private void endLiteral() throws IOException, InvalidJsonException
+    {
+        final JsonInput lexer = new JsonInput( token, 1, tokenLen - 1 );
+
+        endLiteral( lexer, lexer.parseLiteral( token[0] & 0xFF ) );
+    }
+
+
+    private void endLiteral( final JsonInput lexer, final int type ) throws InvalidJsonException
+    {
+        switch( type )
+        {
+            case Json.JSON_FALSE:
+                handler.booleanValue( false );
+                break;
+
+            case Json.JSON_TRUE:
+                handler.booleanValue( true );
+                break;
+
+            case Json.JSON_NULL:
+                handler.nullValue();
+                break;
+
+            case Json.JSON_LONG:
+                handler.longValue( lexer.longValue() );
+                break;
+
+            case Json.JSON_DOUBLE:
+                handler.doubleValue( lexer.doubleValue() );
+                break;
+
+            default:
+                handler.longValue( 0 ); // Number could not be converted.
+                break;
+        }
+
+        endValue();
+    }
+
+
+    private void startContainer( final byte kind )
+    {
+        if( depth == containers.length ) containers = Arrays.copyOf( containers, 2 * depth );
+
+        containers[depth++] = kind;
+    }
+
+
+    private void endContainer()
+    {
+        if( OBJECT == containers[--depth] ) handler.endObject();
+        else handler.endArray();
+
+        endValue();
+    }
+
+
+    private void endValue()
+    {
+        if( 0 < depth )
+        {
+            state = ARRAY == containers[depth - 1] ? ST_ARRAY_NEXT : ST_OBJECT_NEXT;
+            return;
+        }
+
+        // A top-level value is complete.
+        state    = ST_VALUE;
+        hasValue = true;
+
+        if( null != builder ) values.add( builder.root() );
+    }
+
+
+    private void append( final int b )
+    {
+        if( tokenLen == token.length ) token = Arrays.copyOf( token, 2 * tokenLen );
+
+        token[tokenLen++] = (byte) b;
+    }
+
+
+    private static boolean isNumberChar( final int b )
+    {
+        switch( b )
+        {
+            case '0':
+            case '1':
+            case '2':
+            case '3':
+            case '4':
+            case '5':
+            case '6':
+            case '7':
+            case '8':
+            case '9':
+            case '.':
+            case 'e':
+            case 'E':
+            case '+':
+            case '-':
+                return true;
+
+            default:
+                return false;
+        }
+    }
+}
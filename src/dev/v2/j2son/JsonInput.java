@@ -0,0 +1,1049 @@
+/*
+ * Copyright (c) 2013-2025 - Troy Wu
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.v2.j2son;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+import static dev.v2.j2son.JsonParser.DEBUG_NUM;
+import static dev.v2.j2son.JsonParser.DEBUG_STR;
+
+
+/**
+ * A cursor over UTF-8 encoded JSON bytes.  Structural characters are read as
+ * raw bytes; UTF-8 is only decoded inside of string bodies.
+ * <p>
+ * The bytes either all sit in one array, or are pulled from a stream through
+ * a single fixed-size buffer, which is refilled as it is consumed.
+ * <p>
+ * String bodies and runs of indentation are scanned 8 bytes at a time, as
+ * long words (SWAR), rather than byte by byte.
+ *
+ * @see JsonParser
+ */
+final class JsonInput
+{
+    static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final char REPLACEMENT_CHAR = '\uFFFD';
+
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle( long[].class, ByteOrder.LITTLE_ENDIAN );
+
+    // NOTE - The value of each hex digit, and -1 for every other byte.
+    private static final byte[] HEX = new byte[256];
+
+    static
+    {
+        Arrays.fill( HEX, (byte) -1 );
+
+        for( int i = 0; i < 10; ++i ) HEX['0' + i] = (byte) i;
+        for( int i = 0; i < 6; ++i )
+        {
+            HEX['a' + i] = (byte) (10 + i);
+            HEX['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH = 0x8080808080808080L;
+    private static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+
+    private final InputStream src; // NOTE - null when the whole input is in buf.
+    private final byte[]      buf;
+
+    private int pos;
+    private int limit;
+
+    private JsonKeyCache keys = JsonKeyCache.shared();
+
+    private long   longValue;   // Value of the last number parsed, if integral.
+    private double doubleValue; // Value of the last number parsed, if not.
+
+    // NOTE - The number being parsed; reused, so that parsing a number allocates nothing.
+    private char[]  numberText = new char[32]; // Exactly as it appears in the input.
+    private int     numberLength;
+    private boolean isIntegral;
+    private long    mantissa;    // Unsigned; the first 19 significant digits.
+    private int     digits;      // Significant digits, including any not kept.
+    private long    scale;       // Power of ten to apply to the mantissa, besides the exponent.
+    private boolean isTruncated; // Some non-zero digits were not kept.
+    private long    exponent;
+
+    // NOTE - The string being read, when it has escapes; reused, like the number.
+    private char[] chars = new char[64];
+    private int    charCount;
+
+
+    JsonInput( final byte[] buf, final int offset, final int length )
+    {
+        Objects.checkFromIndexSize( offset, length, buf.length );
+
+        this.src   = null;
+        this.buf   = buf;
+        this.pos   = offset;
+        this.limit = offset + length;
+    }
+
+
+    JsonInput( final InputStream src )
+    {
+        this.src   = Objects.requireNonNull( src );
+        this.buf   = new byte[BUFFER_SIZE];
+        this.pos   = 0;
+        this.limit = 0;
+    }
+
+
+    /**
+     * @return The next byte (0-255), or -1 at the end of the input.
+     */
+    int read() throws IOException
+    {
+        if( pos >= limit && !fill() ) return -1;
+
+        return buf[pos++] & 0xFF;
+    }
+
+
+    /**
+     * @return Index in the buffer of the next byte to be read.
+     */
+    int position()
+    {
+        return pos;
+    }
+
+
+    /**
+     * @return The array holding the input; for input which is all in memory.
+     */
+    byte[] buffer()
+    {
+        return buf;
+    }
+
+
+    /**
+     * Steps back over the byte just returned by read().  Only valid directly
+     * after a read() which did not return -1.
+     */
+    void unread()
+    {
+        --pos;
+    }
+
+
+    /**
+     * Skips whitespace, starting with c (a character already read).
+     *
+     * @return The first non-whitespace character, or -1 at the end of input.
+     */
+    int skipWhitespace( int c ) throws IOException
+    {
+        while( true )
+        {
+            switch( c )
+            {
+                case 10: // LF
+                    pos = skipSpaces( pos ); // NOTE - Probably followed by indentation.
+                    c   = read();
+                    break;
+
+                case 0: // NUL
+                case 9: // tab
+                case 13: // CR
+                case 32: // SP
+                    c = read();
+                    break;
+
+                default:
+                    return c;
+            }
+        }
+    }
+
+
+    /**
+     * @return Index of the first non-space byte in buf[from, limit), or limit.
+     */
+    private int skipSpaces( int from )
+    {
+        for( ; from + 8 <= limit; from += 8 )
+        {
+            final long x = (long) LONGS.get( buf, from ) ^ (' ' * ONES);
+
+            if( 0 != x ) return from + (Long.numberOfTrailingZeros( x ) >>> 3);
+        }
+
+        while( from < limit && ' ' == buf[from] ) ++from;
+
+        return from;
+    }
+
+
+    /**
+     * @return Index of the first double-quote, backslash or control character
+     * in buf[from, limit), or limit.
+     */
+    private int scanString( int from )
+    {
+        for( ; from + 8 <= limit; from += 8 )
+        {
+            final long w = (long) LONGS.get( buf, from );
+
+            final long found = equal( w, '"' ) | equal( w, '\\' ) | lessThan( w, 0x20 );
+
+            if( 0 != found ) return from + (Long.numberOfTrailingZeros( found ) >>> 3);
+        }
+
+        for( ; from < limit; ++from )
+        {
+            final int c = buf[from] & 0xFF;
+
+            if( '"' == c || '\\' == c || c < 0x20 ) break;
+        }
+
+        return from;
+    }
+
+
+    /**
+     * @return Index of the first double-quote, bracket or curly brace in
+     * buf[from, limit), or limit.
+     */
+    private int scanBrackets( int from )
+    {
+        for( ; from + 8 <= limit; from += 8 )
+        {
+            final long w = (long) LONGS.get( buf, from );
+
+            // NOTE - '[' | 0x20 == '{' and ']' | 0x20 == '}'.
+            final long lower = w | (0x20 * ONES);
+            final long found = equal( w, '"' ) | equal( lower, '{' ) | equal( lower, '}' );
+
+            if( 0 != found ) return from + (Long.numberOfTrailingZeros( found ) >>> 3);
+        }
+
+        for( ; from < limit; ++from )
+        {
+            final int c = buf[from];
+
+            if( '"' == c || '{' == (c | 0x20) || '}' == (c | 0x20) ) break;
+        }
+
+        return from;
+    }
+
+
+    /**
+     * @return The high bit of each byte of w which equals c.
+     */
+    private static long equal( final long w, final int c )
+    {
+        final long x = w ^ (c * ONES);
+        return ~(((x & LOW7) + LOW7) | x | LOW7);
+    }
+
+
+    /**
+     * @return The high bit of each byte of w which is less than n (n <= 0x80).
+     */
+    private static long lessThan( final long w, final int n )
+    {
+        return ~((w | HIGH) - n * ONES) & ~w & HIGH;
+    }
+
+
+    /**
+     * Refills the (fully consumed) buffer from the stream.
+     *
+     * @return false at the end of the input.
+     */
+    private boolean fill() throws IOException
+    {
+        if( null == src ) return false;
+
+        int n;
+        do
+        {
+            n = src.read( buf, 0, buf.length );
+        } while( 0 == n );
+
+        if( n < 0 ) return false;
+
+        pos   = 0;
+        limit = n;
+
+        return true;
+    }
+
+
+    /**
+     * Uses the given cache for object keys, rather than the shared one.
+     */
+    JsonInput keys( final JsonKeyCache keys )
+    {
+        this.keys = Objects.requireNonNull( keys );
+        return this;
+    }
+
+
+    /**
+     * Reads an object key, just like readString(); but a key without escapes
+     * comes from the key cache, so a repeated key costs no decoding.
+     */
+    String readKey() throws IOException, InvalidJsonException
+    {
+        final int start = pos;
+        final int end   = scanString( start );
+
+        if( end < limit && '"' == buf[end] )
+        {
+            pos = end + 1;
+            return keys.get( buf, start, end - start );
+        }
+
+        return readString();
+    }
+
+
+    /**
+     * Reads the body of a string; the opening double-quote has already been
+     * consumed, and the closing one is consumed here.
+     *
+     * @return The decoded string.
+     */
+    String readString() throws IOException, InvalidJsonException
+    {
+        final int start = pos;
+        int       end   = scanString( start );
+
+        if( end < limit && '"' == this.buf[end] )
+        {
+            // NOTE - No escapes (the common case), so decode the whole body in one go.
+            pos = end + 1;
+            return new String( this.buf, start, end - start, StandardCharsets.UTF_8 );
+        }
+
+        charCount = 0;
+
+        while( true )
+        {
+            // NOTE - A run cut off by the end of the buffer may end in part of a character, which is
+            //        left to be read byte by byte (across the refill); the rest goes in one piece.
+            appendPlain( end < limit || null == src ? end : wholeChars( end ) );
+
+            int c = read();
+
+            if( DEBUG_STR ) System.out.println( "        > Reading [" + c + "]" );
+
+            if( -1 == c )
+            {
+                throw new InvalidJsonException( "JSON aborted in the middle of string." );
+            }
+            else if( '\\' == c )
+            {
+                int d = read();
+                if( -1 == d ) throw new InvalidJsonException( "JSON aborted in the middle of string." );
+
+                switch( d )
+                {
+                    case '"':
+                    case '\\':
+                    case '/':
+                        append( (char) d );
+                        break;
+
+                    case 'b':
+                        append( '\b' );
+                        break;
+                    case 'f':
+                        append( '\f' );
+                        break;
+                    case 'n':
+                        append( '\n' );
+                        break;
+                    case 'r':
+                        append( '\r' );
+                        break;
+                    case 't':
+                        append( '\t' );
+                        break;
+
+                    case 'u':
+                    {
+                        if( DEBUG_STR ) System.out.println( "  Encountered Unicode escape..." );
+
+                        // NOTE - Any bad digit (or the end of the input) makes this negative.
+                        final int u = (hex( read() ) << 12) | (hex( read() ) << 8) | (hex( read() ) << 4) | hex( read() );
+
+                        if( u < 0 ) throw new InvalidJsonException( "Invalid Unicode escape sequence." );
+
+                        // NOTE - A surrogate pair is two escapes, which come out as the two halves.
+                        append( (char) u );
+                        break;
+                    }
+
+                    default:
+                        throw new InvalidJsonException( "Invalid JSON string escape sequence [\\" + d + "]" );
+                }
+            }
+            else if( '"' == c )
+            {
+                if( DEBUG_STR ) System.out.println( "--End of string." );
+                break; // Termination of a string.
+            }
+            else if( '\n' == c )
+            {
+                throw new InvalidJsonException( "Unescaped newline found in string." );
+            }
+            else if( '\t' == c )
+            {
+                throw new InvalidJsonException( "Unescaped tab found in string." );
+            }
+            else if( c < 0x80 )
+            {
+                append( (char) c );
+            }
+            else
+            {
+                decodeUtf8( c );
+            }
+
+            end = scanString( pos );
+        }
+
+        final String s = new String( chars, 0, charCount );
+
+        if( DEBUG_STR ) System.out.println( "s: [" + s + "], len: " + s.length() );
+        if( DEBUG_STR ) System.out.println( "  ==> string!" );
+
+        return s;
+    }
+
+
+    /**
+     * Decodes the plain bytes (no escapes or control characters) from pos up
+     * to end, all in the buffer, onto the string being read.
+     */
+    private void appendPlain( final int end ) throws IOException
+    {
+        // NOTE - UTF-8 never decodes to more chars than it has bytes.
+        if( charCount + (end - pos) > chars.length ) chars = Arrays.copyOf( chars, Math.max( 2 * chars.length, charCount + (end - pos) ) );
+
+        while( pos < end )
+        {
+            final byte b = buf[pos];
+
+            if( b >= 0 )
+            {
+                chars[charCount++] = (char) b;
+                ++pos;
+            }
+            else
+            {
+                ++pos;
+                decodeUtf8( b & 0xFF );
+            }
+        }
+    }
+
+
+    /**
+     * @return end, or the start of the UTF-8 sequence which end cuts short.
+     */
+    private int wholeChars( final int end )
+    {
+        for( int i = end - 1; i >= pos && i >= end - 3; --i )
+        {
+            final int b = buf[i] & 0xFF;
+
+            if( b < 0x80 ) return end;
+            if( b < 0xC0 ) continue; // A continuation byte.
+
+            final int length = b < 0xE0 ? 2 : b < 0xF0 ? 3 : 4;
+            return i + length > end ? i : end;
+        }
+
+        return end;
+    }
+
+
+    private void append( final char c )
+    {
+        if( charCount == chars.length ) chars = Arrays.copyOf( chars, 2 * charCount );
+
+        chars[charCount++] = c;
+    }
+
+
+    /**
+     * Skips the rest of a value whose first character, c, has already been
+     * read.  Brackets and double-quotes are matched, but nothing else is
+     * checked.  The character which ends a bare literal is left unread.
+     */
+    void skipValue( int c ) throws IOException, InvalidJsonException
+    {
+        switch( c )
+        {
+            case '"':
+                skipString();
+                return;
+
+            case '{':
+            case '[':
+                break;
+
+            case -1:
+                throw new InvalidJsonException( "JSON aborted at the start of a literal." );
+
+            default:
+                skipLiteral();
+                return;
+        }
+
+        int depth = 1;
+        while( 0 < depth )
+        {
+            pos = scanBrackets( pos );
+
+            switch( read() )
+            {
+                case -1:
+                    throw new InvalidJsonException( "JSON aborted in the middle of " + ('{' == c ? "an object." : "an array.") );
+
+                case '"':
+                    skipString();
+                    break;
+
+                case '{':
+                case '[':
+                    ++depth;
+                    break;
+
+                case '}':
+                case ']':
+                    --depth;
+                    break;
+
+                default:
+                    break;
+            }
+        }
+    }
+
+
+    private void skipString() throws IOException, InvalidJsonException
+    {
+        while( true )
+        {
+            pos = scanString( pos );
+
+            final int c = read();
+
+            if( '"' == c ) return;
+
+            if( -1 == c || ('\\' == c && -1 == read()) ) throw new InvalidJsonException( "JSON aborted in the middle of string." );
+        }
+    }
+
+
+    private void skipLiteral() throws IOException
+    {
+        while( true )
+        {
+            switch( read() )
+            {
+                case -1:
+                    return;
+
+                case 0: // NUL
+                case 9: // tab
+                case 10: // LF
+                case 13: // CR
+                case 32: // SP
+                case ',':
+                case ':':
+                case '"':
+                case '{':
+                case '}':
+                case '[':
+                case ']':
+                    unread();
+                    return;
+
+                default:
+                    break;
+            }
+        }
+    }
+
+
+    /**
+     * Reads a bare literal (a number, true, false or null) whose first
+     * character, c, has already been read.  The character which ends a
+     * number is left unread.
+     *
+     * @return Json.JSON_FALSE, JSON_TRUE or JSON_NULL for words;
+     * Json.JSON_LONG or JSON_DOUBLE for numbers, whose value is then
+     * available from longValue() or doubleValue(); or Json.JSON_INVALID for a
+     * number which could not be converted.
+     */
+    int parseLiteral( int c ) throws IOException, InvalidJsonException
+    {
+        if( -1 == c ) throw new InvalidJsonException( "JSON aborted at the start of a literal." );
+
+        if( '-' == c )
+        {
+            return parseNumber( true, read() );
+        }
+        else if( 'f' == c )
+        {
+            int d = read();
+            int e = read();
+            int f = read();
+            int g = read();
+
+            if( 'a' != d || 'l' != e || 's' != f || 'e' != g )
+            {
+                throw new InvalidJsonException( "(false) literal started, but unfinished." );
+            }
+
+            return Json.JSON_FALSE;
+        }
+        else if( 't' == c )
+        {
+            int d = read();
+            int e = read();
+            int f = read();
+
+            if( 'r' != d || 'u' != e || 'e' != f )
+            {
+                throw new InvalidJsonException( "(true) literal started, but unfinished." );
+            }
+
+            return Json.JSON_TRUE;
+        }
+        else if( 'n' == c )
+        {
+            int d = read();
+            int e = read();
+            int f = read();
+
+            if( 'u' != d || 'l' != e || 'l' != f )
+            {
+                throw new InvalidJsonException( "(null) literal started, but unfinished." );
+            }
+
+            return Json.JSON_NULL;
+        }
+        else
+        {
+            return parseNumber( false, c );
+        }
+    }
+
+
+    long longValue()
+    {
+        return longValue;
+    }
+
+
+    double doubleValue()
+    {
+        return doubleValue;
+    }
+
+
+    /**
+     * @return Whether the text of the number just parsed is an integer;
+     * which, if it was not converted, means it was too big for a long.
+     */
+    boolean isIntegral()
+    {
+        return isIntegral;
+    }
+
+
+    /**
+     * @return The number just parsed by parseLiteral(), as a node holding a
+     * small copy of its text; never the input itself, so the tree neither
+     * keeps the caller's array alive nor changes with it.
+     */
+    Json exactNumber( final String key )
+    {
+        if( null == src ) return new JsonNumber( key, Arrays.copyOfRange( buf, pos - numberLength, pos ), isIntegral );
+
+        final byte[] text = new byte[numberLength];
+        for( int i = 0; i < numberLength; ++i ) text[i] = (byte) numberText[i];
+
+        return new JsonNumber( key, text, isIntegral );
+    }
+
+
+    private int parseNumber( boolean isNegative, int c ) throws IOException, InvalidJsonException
+    {
+        if( -1 == c ) throw new InvalidJsonException( "JSON aborted at the magnitude (after sign) of a number." );
+
+        numberLength = 0;
+        mantissa     = 0;
+        digits       = 0;
+        scale        = 0;
+        isTruncated  = false;
+        exponent     = 0;
+
+        if( isNegative ) keep( '-' );
+
+        if( '0' == c ) // Fractional (e.g., 0.123) or the ZERO literal (0)
+        {
+            keep( '0' );
+
+            c = read();
+
+            if( '.' == c )
+            {
+                keep( '.' );
+
+                return parseNumberPostfix( isNegative, read(), true, false );
+            }
+            else if( 'e' == c || 'E' == c )
+            {
+                final int type = parseNumberPostfix( isNegative, c, false, true );
+
+                // NOTE - Taken as the integer zero; though its text (kept by exactNumber()) is not one.
+                isIntegral = false;
+                longValue  = 0;
+                return Json.JSON_INVALID == type ? type : Json.JSON_LONG;
+            }
+            else
+            {
+                // NOTE - Zero can just end the number, without anything follow.
+                if( -1 != c ) unread();
+
+                isIntegral = true;
+                longValue  = 0;
+                return Json.JSON_LONG;
+            }
+        }
+        else // Not fractional, so must be non-zero digit ("normal" number)
+        {
+            switch( c )
+            {
+                case '1':
+                case '2':
+                case '3':
+                case '4':
+                case '5':
+                case '6':
+                case '7':
+                case '8':
+                case '9':
+                    digit( c, false );
+                    break;
+
+                default:
+                    throw new InvalidJsonException( "Bad start to number (" + c + ")" );
+            }
+
+            return parseNumberPostfix( isNegative, read(), false, true );
+        }
+    }
+
+
+    private int parseNumberPostfix( boolean isNegative, int c, boolean isInFraction, boolean hasNumericAlready ) throws IOException, InvalidJsonException
+    {
+        boolean hasNumericPart      = hasNumericAlready;
+        boolean isInExponent        = false;
+        boolean isInExponentNumeric = false;
+        boolean isExponentNegative  = false;
+        int     exponentDigits      = 0;
+
+        do
+        {
+            switch( c )
+            {
+                case '0':
+                case '1':
+                case '2':
+                case '3':
+                case '4':
+                case '5':
+                case '6':
+                case '7':
+                case '8':
+                case '9':
+                    hasNumericPart = true;
+                    if( isInExponent )
+                    {
+                        exponentDigit( c );
+                        ++exponentDigits;
+                    }
+                    else
+                    {
+                        digit( c, isInFraction );
+                    }
+                    break;
+
+                case '.':
+                    if( isInFraction ) throw new InvalidJsonException( "Two periods inside one number." );
+                    if( isInExponent ) throw new InvalidJsonException( "Periods inside exponent." );
+                    isInFraction = true;
+                    keep( c );
+                    break;
+
+                case 'E':
+                case 'e':
+                    if( !hasNumericPart ) throw new InvalidJsonException( "No numeric before exponent." );
+                    if( isInExponent ) throw new InvalidJsonException( "Two exponents inside one number." );
+                    isInExponent = true;
+                    keep( c );
+                    c = read();
+                    // Check if this is a sign.  If so, keep it.  If not, check if digit.
+                    switch( c )
+                    {
+                        case '+': // We ignore + signs in floats.
+                            keep( c );
+                            break;
+
+                        case '-':
+                            if( isInExponentNumeric )
+                                throw new InvalidJsonException( "More than one sign (or misplaced sign) in exponent." );
+                            isExponentNegative = true;
+                            keep( c );
+                            break;
+
+                        case '1':
+                        case '2':
+                        case '3':
+                        case '4':
+                        case '5':
+                        case '6':
+                        case '7':
+                        case '8':
+                        case '9':
+                            exponentDigit( c );
+                            ++exponentDigits;
+                            break;
+
+                        default:
+                            throw new InvalidJsonException( "Unexpected character [" + c + "] in exponent." );
+                    }
+                    isInExponentNumeric = true;
+                    break;
+
+                default:
+                    // NOTE - The character ending the number belongs to whatever follows it.
+                    if( -1 != c ) unread();
+
+                    if( DEBUG_NUM ) System.out.println( "  ==> Converting [" + new String( numberText, 0, numberLength ) + "]..." );
+
+                    isIntegral = !(isInFraction || isInExponent);
+
+                    if( !isIntegral )
+                    {
+                        // This is a double; it needs digits in its exponent, if it has one.
+                        if( isInExponent && 0 == exponentDigits ) return Json.JSON_INVALID;
+
+                        doubleValue = toDouble( isNegative, isExponentNegative ? -exponent : exponent );
+
+                        if( DEBUG_NUM ) System.out.println( "      Converted to (" + doubleValue + ")" );
+                        return Json.JSON_DOUBLE;
+                    }
+                    else
+                    {
+                        // This is an integer; it must fit in a long.
+                        if( digits > 19 ) return Json.JSON_INVALID;
+                        if( isNegative ? Long.compareUnsigned( mantissa, Long.MIN_VALUE ) > 0 : mantissa < 0 ) return Json.JSON_INVALID;
+
+                        longValue = isNegative ? -mantissa : mantissa;
+
+                        if( DEBUG_NUM ) System.out.println( "      Converted to (" + longValue + ")" );
+                        return Json.JSON_LONG;
+                    }
+            }
+
+            // Read next character.  Don't forget this, just because it's do-while.
+            c = read();
+
+        } while( true );
+    }
+
+
+    /**
+     * Accumulates a digit of the mantissa.  Only the first 19 significant
+     * digits are kept; the scale makes up for any others.
+     */
+    private void digit( final int c, final boolean isInFraction )
+    {
+        keep( c );
+
+        final int d = c - '0';
+
+        if( 0 == digits && 0 == d )
+        {
+            // NOTE - Leading zeros (only possible after "0.") are not significant.
+            --scale;
+        }
+        else if( digits < 19 )
+        {
+            mantissa = 10 * mantissa + d;
+            ++digits;
+            if( isInFraction ) --scale;
+        }
+        else
+        {
+            ++digits;
+            if( !isInFraction ) ++scale;
+            if( 0 != d ) isTruncated = true;
+        }
+    }
+
+
+    private void exponentDigit( final int c )
+    {
+        keep( c );
+
+        // NOTE - Any exponent this big already means zero or infinity; just don't let it overflow.
+        if( exponent < 100_000_000 ) exponent = 10 * exponent + (c - '0');
+    }
+
+
+    /**
+     * Appends a character to the text of the number, which is only needed if
+     * it cannot be converted directly, or is to be kept as it is.
+     */
+    private void keep( final int c )
+    {
+        if( numberLength == numberText.length ) numberText = Arrays.copyOf( numberText, 2 * numberLength );
+
+        numberText[numberLength++] = (char) c;
+    }
+
+
+    private double toDouble( final boolean isNegative, final long exp10 )
+    {
+        double d = DecimalConversion.toDouble( mantissa, scale + exp10, isTruncated );
+
+        if( Double.isNaN( d ) )
+        {
+            // NOTE - Rare; let the JDK sort out the exact rounding.
+            d = Math.abs( Double.parseDouble( new String( numberText, 0, numberLength ) ) );
+        }
+
+        return isNegative ? -d : d;
+    }
+
+
+    /**
+     * Decodes one multi-byte UTF-8 sequence, given its lead byte, and appends
+     * its char(s) to the string being read.  Malformed sequences (bad
+     * continuation bytes, overlong forms, encoded surrogates) become U+FFFD,
+     * just as InputStreamReader would have done.
+     *
+     * @param lead First byte of the sequence (0x80-0xFF), already consumed;
+     *             the continuation bytes are read here.
+     */
+    private void decodeUtf8( final int lead ) throws IOException
+    {
+        final int count;
+        int       min = 0x80;
+        int       max = 0xBF;
+        int       cp;
+
+        if( lead >= 0xC2 && lead <= 0xDF )
+        {
+            count = 1;
+            cp    = lead & 0x1F;
+        }
+        else if( lead >= 0xE0 && lead <= 0xEF )
+        {
+            count = 2;
+            cp    = lead & 0x0F;
+            if( 0xE0 == lead ) min = 0xA0; // Overlong.
+        }
+        else if( lead >= 0xF0 && lead <= 0xF4 )
+        {
+            count = 3;
+            cp    = lead & 0x07;
+            if( 0xF0 == lead ) min = 0x90; // Overlong.
+            if( 0xF4 == lead ) max = 0x8F; // Beyond U+10FFFF.
+        }
+        else
+        {
+            // Lone continuation byte, or a lead byte which can never be valid.
+            append( REPLACEMENT_CHAR );
+            return;
+        }
+
+        for( int i = 0; i < count; ++i )
+        {
+            final int d = read();
+
+            if( d < min || d > max )
+            {
+                // NOTE - Leave the offending byte to be read again on its own.
+                if( -1 != d ) unread();
+                append( REPLACEMENT_CHAR );
+                return;
+            }
+
+            cp  = (cp << 6) | (d & 0x3F);
+            min = 0x80;
+            max = 0xBF;
+        }
+
+        // NOTE - An encoded surrogate is malformed as a whole sequence.
+        if( cp >= 0xD800 && cp <= 0xDFFF )
+        {
+            append( REPLACEMENT_CHAR );
+        }
+        else if( cp < 0x10000 )
+        {
+            append( (char) cp );
+        }
+        else
+        {
+            append( Character.highSurrogate( cp ) );
+            append( Character.lowSurrogate( cp ) );
+        }
+    }
+
+
+    /**
+     * @return The value of a hex digit, or -1 for anything else (including
+     * the end of the input).
+     */
+    private static int hex( final int c )
+    {
+        return c < 0 ? -1 : HEX[c];
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2013-2025 - Troy Wu
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.v2.j2son;
+
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+
+/**
+ * A bounded cache of object keys, looked up by their UTF-8 bytes in the
+ * input, so a key seen before is neither decoded nor allocated again.  Every
+ * occurrence of a cached key in the parsed tree is the same String.
+ * <p>
+ * The cache is direct-mapped: each key has one slot, and a new key simply
+ * replaces whatever was there.  Only short keys without escapes are cached.
+ * <p>
+ * One cache can be shared by any number of threads without locking; by
+ * default, every parser uses the one from shared().  Or, a parser can be
+ * given a cache of its own; see Json.parse( byte[], int, int, JsonKeyCache ).
+ */
+public final class JsonKeyCache
+{
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    static final int MAX_KEY_LENGTH = 64; // NOTE - In bytes.
+
+    private static final JsonKeyCache SHARED = new JsonKeyCache();
+
+    /**
+     * NOTE - Immutable, so that a slot written by one thread is never seen
+     * half-built by another; at worst, a key is decoded again.
+     */
+    private static final class Entry
+    {
+        final int    hash;
+        final byte[] bytes;
+        final String key;
+
+        Entry( final int hash, final byte[] bytes, final String key )
+        {
+            this.hash  = hash;
+            this.bytes = bytes;
+            this.key   = key;
+        }
+    }
+
+    private final Entry[] entries;
+    private final int     mask;
+
+
+    public JsonKeyCache()
+    {
+        this( DEFAULT_CAPACITY );
+    }
+
+
+    /**
+     * @param capacity The most keys held at once; rounded up to a power of
+     *                 two.
+     */
+    public JsonKeyCache( final int capacity )
+    {
+        if( capacity < 1 || capacity > 1 << 30 ) throw new IllegalArgumentException( "Bad key cache capacity: " + capacity );
+
+        final int size = Integer.highestOneBit( capacity - 1 ) << 1;
+
+        this.entries = new Entry[Math.max( 1, size )];
+        this.mask    = entries.length - 1;
+    }
+
+
+    /**
+     * @return The cache used when a parser is not given one.
+     */
+    public static JsonKeyCache shared()
+    {
+        return SHARED;
+    }
+
+
+    /**
+     * @return The key held in buf[offset, offset + length), which is UTF-8
+     * without any escapes.
+     */
+    String get( final byte[] buf, final int offset, final int length )
+    {
+        if( length > MAX_KEY_LENGTH ) return new String( buf, offset, length, StandardCharsets.UTF_8 );
+
+        int h = 0;
+        for( int i = offset; i < offset + length; ++i ) h = 31 * h + buf[i];
+        h ^= h >>> 16;
+
+        final int   slot = h & mask;
+        final Entry e    = entries[slot];
+
+        if( null != e && e.hash == h && Arrays.equals( e.bytes, 0, e.bytes.length, buf, offset, offset + length ) ) return e.key;
+
+        final String key = new String( buf, offset, length, StandardCharsets.UTF_8 );
+
+        entries[slot] = new Entry( h, Arrays.copyOfRange( buf, offset, offset + length ), key );
+
+        return key;
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) 2013-2025 - Troy Wu
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.v2.j2son;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+
+/**
+ * Parses newline-delimited JSON (NDJSON, or JSON Lines) on all cores.
+ * <p>
+ * Input is read in large batches which end on a line boundary.  The records
+ * in a batch are parsed in parallel on the common ForkJoinPool, while the
+ * next batch is being read, and are handed back in their original order.
+ * Blank lines are skipped.
+ */
+final class JsonLines implements Iterator< Json >
+{
+    static final int BATCH_SIZE = 1 << 20; // 1 MB
+
+    private static final int TASK_SIZE = 64 << 10; // Bytes of records per parsing task.
+
+
+    /**
+     * A run of complete lines, and the results of parsing them.
+     */
+    private static final class Batch
+    {
+        final byte[] buf;
+        final int[]  lines; // Line i spans [lines[i], lines[i + 1]), including its newline.
+        final long   firstLine;
+
+        final Json[]                results;
+        final InvalidJsonException[] errors;
+
+        final ParseTask task;
+
+        Batch( final byte[] buf, final int[] lines, final long firstLine )
+        {
+            this.buf       = buf;
+            this.lines     = lines;
+            this.firstLine = firstLine;
+
+            this.results = new Json[lines.length - 1];
+            this.errors  = new InvalidJsonException[lines.length - 1];
+
+            this.task = new ParseTask( this, 0, results.length );
+        }
+
+
+        int size()
+        {
+            return results.length;
+        }
+
+
+        /**
+         * @return The record on line i, or null for a blank line.
+         */
+        Json get( final int i ) throws InvalidJsonException
+        {
+            final InvalidJsonException jex = errors[i];
+
+            if( null != jex ) throw new InvalidJsonException( "Line " + (firstLine + i) + ": " + jex.getMessage() );
+
+            return results[i];
+        }
+    }
+
+
+    private static final class ParseTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Batch batch;
+        private final int   lo;
+        private final int   hi;
+
+        ParseTask( final Batch batch, final int lo, final int hi )
+        {
+            this.batch = batch;
+            this.lo    = lo;
+            this.hi    = hi;
+        }
+
+        @Override
+        protected void compute()
+        {
+            final int[] lines = batch.lines;
+
+            if( 1 < hi - lo && lines[hi] - lines[lo] > TASK_SIZE )
+            {
+                final int mid = (lo + hi) >>> 1;
+                invokeAll( new ParseTask( batch, lo, mid ), new ParseTask( batch, mid, hi ) );
+                return;
+            }
+
+            for( int i = lo; i < hi; ++i )
+            {
+                final int start = lines[i];
+                final int end   = lines[i + 1];
+
+                if( isBlank( batch.buf, start, end ) ) continue;
+
+                try
+                {
+                    batch.results[i] = JsonParser.parse( batch.buf, start, end - start );
+                }
+                catch( InvalidJsonException jex )
+                {
+                    batch.errors[i] = jex;
+                }
+                catch( IOException ioex )
+                {
+                    throw new UncheckedIOException( ioex ); // NOTE - Cannot happen; the input is in memory.
+                }
+            }
+        }
+    }
+
+
+    private final InputStream in;
+
+    private byte[]  prev    = new byte[0]; // Previous batch, whose tail [prevEnd, prevLen) starts the next.
+    private int     prevEnd = 0;
+    private int     prevLen = 0;
+    private long    line    = 1;
+    private boolean isEOF   = false;
+
+    private Batch current;  // Parsed; being handed out.
+    private Batch upcoming; // Being parsed.
+    private int   index = 0;
+
+
+    JsonLines( final InputStream in ) throws IOException
+    {
+        this.in = in;
+
+        this.current  = start( read() );
+        this.upcoming = start( read() );
+
+        if( null != current ) current.task.join();
+    }
+
+
+    /**
+     * Hands each record to the consumer, in order.
+     */
+    void forEach( final Consumer< ? super Json > consumer ) throws IOException, InvalidJsonException
+    {
+        while( null != current )
+        {
+            for( int i = 0; i < current.size(); ++i )
+            {
+                final Json j = current.get( i );
+                if( null != j ) consumer.accept( j );
+            }
+
+            advance();
+        }
+    }
+
+
+    @Override
+    public boolean hasNext()
+    {
+        try
+        {
+            while( null != current )
+            {
+                for( ; index < current.size(); ++index )
+                {
+                    if( null != current.get( index ) ) return true;
+                }
+
+                advance();
+            }
+
+            return false;
+        }
+        catch( InvalidJsonException jex )
+        {
+            throw new UncheckedJsonException( jex );
+        }
+        catch( IOException ioex )
+        {
+            throw new UncheckedIOException( ioex );
+        }
+    }
+
+
+    @Override
+    public Json next()
+    {
+        if( !hasNext() ) throw new NoSuchElementException();
+
+        return current.results[index++];
+    }
+
+
+    private void advance() throws IOException
+    {
+        current  = upcoming;
+        upcoming = null;
+        index    = 0;
+
+        if( null == current ) return;
+
+        // NOTE - Read (and start parsing) the next batch while waiting on this one.
+        upcoming = start( read() );
+        current.task.join();
+    }
+
+
+    private static Batch start( final Batch batch )
+    {
+        if( null != batch ) batch.task.fork();
+        return batch;
+    }
+
+
+    /**
+     * @return The next run of complete lines, or null at the end of input.
+     */
+    private Batch read() throws IOException
+    {
+        final int carry = prevLen - prevEnd;
+
+        if( isEOF && 0 == carry ) return null;
+
+        byte[] buf = new byte[Math.max( BATCH_SIZE, 2 * carry )];
+        System.arraycopy( prev, prevEnd, buf, 0, carry );
+
+        int len = carry;
+        int end;
+
+        while( true )
+        {
+            while( len < buf.length && !isEOF )
+            {
+                final int n = in.read( buf, len, buf.length - len );
+
+                if( n < 0 ) isEOF = true;
+                else len += n;
+            }
+
+            end = lastNewline( buf, len ) + 1;
+
+            if( 0 < end || isEOF ) break;
+
+            // A single line longer than the whole buffer.
+            buf = Arrays.copyOf( buf, 2 * buf.length );
+        }
+
+        // NOTE - The last line need not end with a newline.
+        if( isEOF ) end = len;
+
+        prev    = buf;
+        prevEnd = end;
+        prevLen = len;
+
+        if( 0 == end ) return null;
+
+        int count = 0;
+        for( int i = 0; i < end; ++i ) if( '\n' == buf[i] ) ++count;
+        if( '\n' != buf[end - 1] ) ++count;
+
+        final int[] lines = new int[count + 1];
+        int         k     = 1;
+        for( int i = 0; i < end; ++i ) if( '\n' == buf[i] ) lines[k++] = i + 1;
+        lines[count] = end;
+
+        final Batch batch = new Batch( buf, lines, line );
+        line += count;
+
+        return batch;
+    }
+
+
+    private static int lastNewline( final byte[] buf, final int len )
+    {
+        for( int i = len - 1; i >= 0; --i ) if( '\n' == buf[i] ) return i;
+        return -1;
+    }
+
+
+    private static boolean isBlank( final byte[] buf, final int start, final int end )
+    {
+        for( int i = start; i < end; ++i )
+        {
+            switch( buf[i] )
+            {
+                case 0: // NUL
+                case 9: // tab
+                case 10: // LF
+                case 13: // CR
+                case 32: // SP
+                    break;
+
+                default:
+                    return false;
+            }
+        }
+
+        return true;
+    }
+}
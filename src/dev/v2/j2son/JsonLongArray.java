@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2013-2025 - Troy Wu
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.v2.j2son;
+
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.DoubleConsumer;
+import java.util.function.LongConsumer;
+
+
+/**
+ * An array whose elements are all integers, packed into a long[].  Its
+ * list (getList()) is unpacked into an ordinary ArrayList the first time it
+ * is asked for; from then on the list holds the elements.  Until then, the
+ * packed array answers everything else, find() included, without making a
+ * node for each element.
+ */
+final class JsonLongArray extends Json
+{
+    private final long[] values;
+
+    private volatile List< Json > list; // NOTE - Once set, it (not values) holds the elements.
+
+
+    JsonLongArray( final String key, final long[] values )
+    {
+        super( key, JSON_ARRAY );
+        this.values = values;
+    }
+
+
+    /**
+     * @return The packed elements themselves (not a copy), or null once
+     *         getList() has unpacked them.
+     */
+    long[] values()
+    {
+        return null == list ? values : null;
+    }
+
+
+    @Override
+    public Object getValue()
+    {
+        List< Json > unpacked = list;
+
+        if( null == unpacked )
+        {
+            // NOTE - Readers of one tree may race to unpack it; they must all get the same list.
+            synchronized( this )
+            {
+                unpacked = list;
+
+                if( null == unpacked )
+                {
+                    unpacked = new ArrayList<>( values.length );
+                    for( final long v : values ) unpacked.add( new JsonLong( null, v ) );
+                    list = unpacked;
+                }
+            }
+        }
+
+        return unpacked;
+    }
+
+
+    @Override
+    Json element( final int i )
+    {
+        if( null != list ) return super.element( i );
+
+        return i < values.length ? new JsonLong( null, values[i] ) : null;
+    }
+
+
+    @Override
+    List< Json > elements()
+    {
+        return null == list ? new Elements() : list;
+    }
+
+
+    @Override
+    public long[] toLongArray()
+    {
+        return null == list ? values.clone() : super.toLongArray();
+    }
+
+
+    @Override
+    public double[] toDoubleArray()
+    {
+        if( null != list ) return super.toDoubleArray();
+
+        final double[] doubles = new double[values.length];
+        for( int i = 0; i < values.length; ++i ) doubles[i] = values[i];
+        return doubles;
+    }
+
+
+    @Override
+    public void forEachLong( final LongConsumer action )
+    {
+        if( null != list )
+        {
+            super.forEachLong( action );
+            return;
+        }
+
+        for( final long v : values ) action.accept( v );
+    }
+
+
+    @Override
+    public void forEachDouble( final DoubleConsumer action )
+    {
+        if( null != list )
+        {
+            super.forEachDouble( action );
+            return;
+        }
+
+        for( final long v : values ) action.accept( v );
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return null == list ? Arrays.toString( values ) : super.toString();
+    }
+
+
+    /**
+     * A read-only view of the packed elements, which makes a node for an
+     * element each time one is asked for.
+     */
+    private final class Elements extends AbstractList< Json > implements RandomAccess
+    {
+        @Override
+        public Json get( final int i )
+        {
+            return new JsonLong( null, values[i] );
+        }
+
+        @Override
+        public int size()
+        {
+            return values.length;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2013-2025 - Troy Wu
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.v2.j2son;
+
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * A number, held as a small copy of its text and only converted when
+ * asked for; see Json.parseExact().  Nothing is lost, however many digits the
+ * number has, and it is written back out exactly as it was read.
+ * <p>
+ * An integer is a JSON_LONG, even if it does not fit in a long; its value
+ * is then a BigInteger.  Any other number is a JSON_DOUBLE, whose exact
+ * value is available from getBigDecimal().
+ */
+final class JsonNumber extends Json
+{
+    private final byte[] text; // NOTE - The number's own copy, never the parser's input.
+
+
+    JsonNumber( final String key, final byte[] text, final boolean isIntegral )
+    {
+        super( key, isIntegral ? JSON_LONG : JSON_DOUBLE );
+
+        this.text = text;
+    }
+
+
+    /**
+     * @return A Long, or a BigInteger for an integer too big for one; or a
+     * Double.
+     */
+    @Override
+    public Object getValue()
+    {
+        if( isDouble() ) return Double.parseDouble( toString() );
+        if( isSmall() ) return Long.parseLong( toString() );
+
+        final BigInteger big = getBigInteger();
+
+        return big.bitLength() < 64 ? (Object) big.longValue() : big;
+    }
+
+
+    /**
+     * @throws ArithmeticException If the integer does not fit in a long.
+     */
+    @Override
+    public long getLong()
+    {
+        if( !isLong() ) return super.getLong();
+
+        return isSmall() ? Long.parseLong( toString() ) : getBigInteger().longValueExact();
+    }
+
+
+    @Override
+    public double getDouble()
+    {
+        return isDouble() ? Double.parseDouble( toString() ) : super.getDouble();
+    }
+
+
+    @Override
+    public BigInteger getBigInteger()
+    {
+        return isLong() ? new BigInteger( toString() ) : null;
+    }
+
+
+    @Override
+    public BigDecimal getBigDecimal()
+    {
+        return new BigDecimal( toString() );
+    }
+
+
+    /**
+     * @return True for an integer of up to 18 digits, which always fits in a
+     * long.
+     */
+    private boolean isSmall()
+    {
+        return text.length - ('-' == text[0] ? 1 : 0) <= 18;
+    }
+
+
+    /**
+     * @return The number's text, exactly as it was in the input.
+     */
+    @Override
+    public String toString()
+    {
+        return new String( text, StandardCharsets.US_ASCII );
+    }
+}
@@ -0,0 +1,370 @@
+/*
+ * Copyright (c) 2013-2025 - Troy Wu
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.v2.j2son;
+
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+
+/**
+ * The members of a parsed object, in document order: a shape, holding the
+ * keys, and the values in an array beside it.  Objects with the same keys
+ * share one shape (see JsonShape), so a lookup finds the key's member number
+ * in the shape, and that indexes the value.
+ * <p>
+ * As with a HashMap, putting a key which is already there replaces its
+ * value in place; so the last of any duplicate keys wins, in the position of
+ * the first.
+ */
+final class JsonObjectMap extends AbstractMap< String, Json >
+{
+    private JsonShape shape;
+    private boolean   isShared; // NOTE - If so, the shape is copied before any key is changed.
+    private Json[]    values;
+    private int       size;
+
+
+    /**
+     * @param predicted The shape this object will probably have (e.g., that
+     *                  of the object before it in the same array), or null.
+     *                  While the keys keep matching it, they are not stored
+     *                  at all.
+     */
+    JsonObjectMap( final JsonShape predicted )
+    {
+        this.shape    = null != predicted ? predicted : new JsonShape( 4 );
+        this.isShared = null != predicted;
+        this.values   = new Json[null != predicted ? predicted.size : 4];
+    }
+
+
+    /**
+     * Appends a member while parsing, without looking for its key; seal()
+     * sorts out duplicates once all of the members are in.
+     */
+    void add( final String key, final Json value )
+    {
+        if( isShared )
+        {
+            final String expected = size < shape.size ? shape.keys[size] : null;
+
+            if( key != expected && !key.equals( expected ) )
+            {
+                // Not the predicted shape after all; start a shape of our own.
+                shape    = shape.copy( size );
+                isShared = false;
+                shape.add( key );
+            }
+        }
+        else
+        {
+            shape.add( key );
+        }
+
+        if( size == values.length ) values = Arrays.copyOf( values, Math.max( 4, 2 * size ) );
+
+        values[size++] = value;
+    }
+
+
+    /**
+     * Ends parsing: merges duplicate keys, trims the values to the member
+     * count, and settles on a shape, from shapes if it has a matching one.
+     *
+     * @param shapes Shapes seen so far, or null.
+     */
+    JsonObjectMap seal( final JsonShape.Cache shapes )
+    {
+        // NOTE - Fewer keys than predicted.
+        if( isShared && size < shape.size )
+        {
+            shape    = shape.copy( size );
+            isShared = false;
+        }
+
+        if( !isShared )
+        {
+            if( !shape.seal() ) mergeDuplicates();
+
+            if( null != shapes ) shape = shapes.intern( shape );
+            isShared = true;
+        }
+
+        if( size < values.length ) values = Arrays.copyOf( values, size );
+
+        return this;
+    }
+
+
+    /**
+     * @return The shape (keys) of this object, once sealed.
+     */
+    JsonShape shape()
+    {
+        return shape;
+    }
+
+
+    String keyAt( final int i )
+    {
+        return shape.keys[i];
+    }
+
+
+    Json valueAt( final int i )
+    {
+        return values[i];
+    }
+
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+
+    @Override
+    public Json get( final Object key )
+    {
+        final int i = shape.find( key );
+        return i < 0 ? null : values[i];
+    }
+
+
+    @Override
+    public boolean containsKey( final Object key )
+    {
+        return 0 <= shape.find( key );
+    }
+
+
+    @Override
+    public Json put( final String key, final Json value )
+    {
+        final int i = shape.find( key );
+
+        if( 0 <= i )
+        {
+            final Json old = values[i];
+            values[i] = value;
+            return old;
+        }
+
+        own();
+        shape.append( key );
+
+        if( size == values.length ) values = Arrays.copyOf( values, Math.max( 4, 2 * size ) );
+        values[size++] = value;
+
+        return null;
+    }
+
+
+    @Override
+    public Json remove( final Object key )
+    {
+        final int i = shape.find( key );
+        if( i < 0 ) return null;
+
+        final Json old = values[i];
+        removeAt( i );
+        return old;
+    }
+
+
+    @Override
+    public void clear()
+    {
+        shape    = new JsonShape( 4 );
+        isShared = false;
+        values   = new Json[4];
+        size     = 0;
+    }
+
+
+    @Override
+    public Set< Entry< String, Json > > entrySet()
+    {
+        return new AbstractSet< Entry< String, Json > >()
+        {
+            @Override
+            public int size()
+            {
+                return size;
+            }
+
+            @Override
+            public Iterator< Entry< String, Json > > iterator()
+            {
+                return new Iterator< Entry< String, Json > >()
+                {
+                    private int next = 0;
+                    private int last = -1;
+
+                    @Override
+                    public boolean hasNext()
+                    {
+                        return next < size;
+                    }
+
+                    @Override
+                    public Entry< String, Json > next()
+                    {
+                        if( next >= size ) throw new NoSuchElementException();
+
+                        last = next++;
+                        return new Member( last );
+                    }
+
+                    @Override
+                    public void remove()
+                    {
+                        if( last < 0 ) throw new IllegalStateException();
+
+                        removeAt( last );
+                        next = last;
+                        last = -1;
+                    }
+                };
+            }
+        };
+    }
+
+
+    /**
+     * A member, read (and written) through to the arrays.
+     */
+    private final class Member implements Entry< String, Json >
+    {
+        private final int i;
+
+        Member( final int i )
+        {
+            this.i = i;
+        }
+
+        @Override
+        public String getKey()
+        {
+            return shape.keys[i];
+        }
+
+        @Override
+        public Json getValue()
+        {
+            return values[i];
+        }
+
+        @Override
+        public Json setValue( final Json value )
+        {
+            final Json old = values[i];
+            values[i] = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals( final Object o )
+        {
+            if( !(o instanceof Entry) ) return false;
+
+            final Entry< ?, ? > e = (Entry< ?, ? >) o;
+            return getKey().equals( e.getKey() ) && Objects.equals( values[i], e.getValue() );
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return getKey().hashCode() ^ Objects.hashCode( values[i] );
+        }
+
+        @Override
+        public String toString()
+        {
+            return getKey() + "=" + values[i];
+        }
+    }
+
+
+    /**
+     * Takes a shape of its own, before changing its keys.
+     */
+    private void own()
+    {
+        if( isShared )
+        {
+            shape    = shape.copy( size );
+            isShared = false;
+        }
+    }
+
+
+    private void removeAt( final int i )
+    {
+        own();
+        shape.removeAt( i );
+
+        System.arraycopy( values, i + 1, values, i, size - i - 1 );
+        values[--size] = null;
+    }
+
+
+    /**
+     * Keeps the first of each key, with the value of the last.
+     */
+    private void mergeDuplicates()
+    {
+        final JsonShape unique = new JsonShape( size );
+        final Json[]    merged = new Json[size];
+
+        for( int i = 0; i < size; ++i )
+        {
+            final String key = shape.keys[i];
+            final int    j   = unique.find( key );
+
+            if( 0 <= j )
+            {
+                merged[j] = values[i];
+            }
+            else
+            {
+                merged[unique.size] = values[i];
+                unique.append( key );
+            }
+        }
+
+        shape  = unique;
+        values = merged;
+        size   = unique.size;
+
+        shape.seal();
+    }
+}
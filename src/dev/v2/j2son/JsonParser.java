@@ -24,17 +24,18 @@
 package dev.v2.j2son;
 
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.StringReader;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 
 /**
- * A JSON Parser, which reads the entire input and creates a JSON object.
+ * A JSON Parser, which reads the entire input and reports each value in it to
+ * a JsonHandler.  By default, that handler creates a JSON object.
  *
  * @see Json
+ * @see JsonHandler
  */
 public class JsonParser
 {
@@ -48,23 +49,139 @@ public class JsonParser
 
     public static final String ENCODING = "UTF-8";
 
-    private InputStreamReader isr;
+    private final JsonHandler     handler;
+    private final JsonTreeBuilder exact; // NOTE - Set when numbers are to be kept as their text.
 
-    private boolean isBareLiteral = false;
+    private JsonInput in;
 
 
     static Json parse( final String json ) throws IOException, InvalidJsonException
     {
-        JsonParser parser = new JsonParser();
-        return parser.parseJson( json );
+        final JsonTreeBuilder builder = new JsonTreeBuilder();
+        parse( json, builder );
+        return builder.root();
     }
 
 
-    private Json parseJson( final String json ) throws IOException, InvalidJsonException
+    static Json parse( final byte[] json, final int offset, final int length ) throws IOException, InvalidJsonException
     {
-        final ByteArrayInputStream bais = new ByteArrayInputStream( json.getBytes() );
+        final JsonTreeBuilder builder = new JsonTreeBuilder();
+        parse( json, offset, length, builder );
+        return builder.root();
+    }
+
+
+    static Json parse( final InputStream json ) throws IOException, InvalidJsonException
+    {
+        final JsonTreeBuilder builder = new JsonTreeBuilder();
+        parse( json, builder );
+        return builder.root();
+    }
+
+
+    static Json parseExact( final String json ) throws IOException, InvalidJsonException
+    {
+        final byte[] bytes = json.getBytes( StandardCharsets.UTF_8 );
+        return parseExact( bytes, 0, bytes.length );
+    }
+
+
+    static Json parseExact( final byte[] json, final int offset, final int length ) throws IOException, InvalidJsonException
+    {
+        final JsonTreeBuilder builder = new JsonTreeBuilder();
+        new JsonParser( builder, builder ).parseJson( new JsonInput( json, offset, length ) );
+        return builder.root();
+    }
+
+
+    static Json parseExact( final InputStream json ) throws IOException, InvalidJsonException
+    {
+        final JsonTreeBuilder builder = new JsonTreeBuilder();
+        new JsonParser( builder, builder ).parseJson( new JsonInput( json ) );
+        return builder.root();
+    }
+
+
+    static Json parse( final byte[] json, final int offset, final int length, final JsonKeyCache keys ) throws IOException, InvalidJsonException
+    {
+        final JsonTreeBuilder builder = new JsonTreeBuilder();
+        new JsonParser( builder ).parseJson( new JsonInput( json, offset, length ).keys( keys ) );
+        return builder.root();
+    }
+
+
+    static Json parse( final InputStream json, final JsonKeyCache keys ) throws IOException, InvalidJsonException
+    {
+        final JsonTreeBuilder builder = new JsonTreeBuilder();
+        new JsonParser( builder ).parseJson( new JsonInput( json ).keys( keys ) );
+        return builder.root();
+    }
+
+
+    static void parse( final String json, final JsonHandler handler ) throws IOException, InvalidJsonException
+    {
+        final byte[] bytes = json.getBytes( StandardCharsets.UTF_8 );
+        parse( bytes, 0, bytes.length, handler );
+    }
+
+
+    static void parse( final byte[] json, final int offset, final int length, final JsonHandler handler ) throws IOException, InvalidJsonException
+    {
+        JsonParser parser = new JsonParser( handler );
+        parser.parseJson( new JsonInput( json, offset, length ) );
+    }
+
+
+    static void parse( final InputStream json, final JsonHandler handler ) throws IOException, InvalidJsonException
+    {
+        JsonParser parser = new JsonParser( handler );
+        parser.parseJson( new JsonInput( json ) );
+    }
+
+
+    /**
+     * Parses one value out of the middle of input, into a tree; its first
+     * character, c, has already been read.
+     */
+    static Json parseValue( final JsonInput input, final int c ) throws IOException, InvalidJsonException
+    {
+        final JsonTreeBuilder builder = new JsonTreeBuilder();
+        final JsonParser      parser  = new JsonParser( builder );
+
+        parser.in = input;
+        parser.parseValue( c );
+
+        return builder.root();
+    }
+
+
+    /**
+     * Parses a run of comma-separated array elements, without the brackets,
+     * e.g., one piece of a large array being parsed in parallel.
+     */
+    static void parseElements( final JsonInput input, final JsonHandler handler ) throws IOException, InvalidJsonException
+    {
+        JsonParser parser = new JsonParser( handler );
+        parser.parseElementList( input );
+    }
 
-        isr = new InputStreamReader( bais, ENCODING );
+
+    private JsonParser( final JsonHandler handler )
+    {
+        this( handler, null );
+    }
+
+
+    private JsonParser( final JsonHandler handler, final JsonTreeBuilder exact )
+    {
+        this.handler = Objects.requireNonNull( handler );
+        this.exact   = exact;
+    }
+
+
+    private void parseJson( final JsonInput input ) throws IOException, InvalidJsonException
+    {
+        in = input;
 
         int c;
 
@@ -79,51 +196,58 @@ public class JsonParser
             throw jsex;
         }
 
-        Json j = this.parseValue( c );
+        this.parseValue( c );
 
-        try
-        {
-            this.consumeWhitespace();
-        }
-        catch( InvalidJsonException jsex )
+        // NOTE - Whitespace at the end of the JSON is valid; don't throw (and catch) for every document.
+        in.skipWhitespace( in.read() );
+    }
+
+
+    private void parseElementList( final JsonInput input ) throws IOException, InvalidJsonException
+    {
+        in = input;
+
+        int c = consumeWhitespace();
+
+        while( true )
         {
-            // This isn't an error; it's just whitespace at the end of the JSON, which is valid.
-        }
+            parseValue( c );
 
-        return j;
+            c = in.skipWhitespace( in.read() );
+
+            if( -1 == c )
+            {
+                break; // End of the run.
+            }
+            else if( ',' == c )
+            {
+                c = consumeWhitespace();
+            }
+            else
+            {
+                throw new InvalidJsonException( "Invalid character (not comma or end-bracket) in array." );
+            }
+        }
     }
 
 
     private int consumeWhitespace() throws IOException, InvalidJsonException
     {
-        int c = isr.read();
+        int c = in.read();
         return consumeWhitespace( c );
     }
 
 
     private int consumeWhitespace( int c ) throws IOException, InvalidJsonException
     {
-        do
-        {
-            if( DEBUG_WS ) System.out.println( "            consuming whitespace [" + (c) + "]" );
+        if( DEBUG_WS ) System.out.println( "            consuming whitespace [" + (c) + "]" );
 
-            if( -1 == c ) throw new InvalidJsonException( "JSON terminated in whitespace" );
+        c = in.skipWhitespace( c );
 
-            switch( c )
-            {
-                case 0: // NUL
-                case 9: // tab
-                case 10: // LF
-                case 13: // CR
-                case 32: // SP
-                    c = isr.read();
-                    break;
-
-                default:
-                    if( DEBUG_WS ) System.out.println( "              returning non-whitespace [" + (c) + "]" );
-                    return c;
-            }
-        } while( true );
+        if( -1 == c ) throw new InvalidJsonException( "JSON terminated in whitespace" );
+
+        if( DEBUG_WS ) System.out.println( "              returning non-whitespace [" + (c) + "]" );
+        return c;
     }
 
 
@@ -144,16 +268,14 @@ public class JsonParser
      * @throws IOException Thrown if JSON is malformed.
      * @noinspection CharsetObjectCanBeUsed
      */
-    public Json parseValue( int c ) throws IOException, InvalidJsonException
+    public void parseValue( int c ) throws IOException, InvalidJsonException
     {
-        Json j; // = null;
-
         switch( c )
         {
             case '{':
                 try
                 {
-                    j = parseObject();
+                    parseObject();
                 }
                 catch( StackOverflowError soerr )
                 {
@@ -164,7 +286,7 @@ public class JsonParser
             case '[':
                 try
                 {
-                    j = parseArray();
+                    parseArray();
                 }
                 catch( StackOverflowError soerr )
                 {
@@ -173,24 +295,20 @@ public class JsonParser
                 break;
 
             case '"':
-                j = parseString();
+                parseString();
                 break;
 
             // If not a "bare literal" (number/t/f/null), then WTF??
             default:
-                isBareLiteral = true; // NOTE - Setting global state.
-                j = parseLiteral( c );
+                parseLiteral( c );
                 break;
         }
-
-        return j;
-
     }
 
 
-    private Json parseObject() throws IOException, InvalidJsonException
+    private void parseObject() throws IOException, InvalidJsonException
     {
-        Map< String, Json > map = new HashMap<>();
+        handler.startObject();
 
         if( DEBUG_OBJ ) System.out.println( "    Starting object..." );
 
@@ -206,7 +324,8 @@ public class JsonParser
 
         if( '}' == c )// Empty object.
         {
-            return new Json( map );
+            handler.endObject();
+            return;
         }
 
         int k = 0;
@@ -214,16 +333,10 @@ public class JsonParser
         {
             if( DEBUG_OBJ ) System.out.println( "        Reading map element [" + k + "] (with lookahead c: [" + ((char) c) + "]: (" + c + "))" );
 
-            final Json member = parseMember( c );
-
-            if( DEBUG_OBJ ) member.dump();
-
-            c = member.lookahead();
+            c = parseMember( c );
 
             if( DEBUG_OBJ ) System.out.println( "        lookahead c: [" + ((char) c) + "] after map element consumed." );
 
-            map.put( member.key(), member );
-
             if( '}' == c )
             {
                 break; // End of the object.
@@ -242,19 +355,20 @@ public class JsonParser
             }
         }
 
-        return new Json( map );
+        handler.endObject();
     }
 
-    private Json parseMember( int c ) throws IOException, InvalidJsonException
-    {
-        // c = consumeWhitespace();
 
+    /**
+     * @return The first non-whitespace character after the member.
+     */
+    private int parseMember( int c ) throws IOException, InvalidJsonException
+    {
         if( '"' != c )
         {
             throw new InvalidJsonException( "No key (no st arting double-quote) for object member." );
         }
-        Json   j   = parseString();
-        String key = j.getString();
+        handler.key( in.readKey() );
 
         c = consumeWhitespace();
         if( ':' != c )
@@ -263,17 +377,15 @@ public class JsonParser
         }
 
         c = consumeWhitespace();
-        j = parseValue( c );
-
-        c = consumeWhitespace( j.lookahead() );
+        parseValue( c );
 
-        return new Json( key, j, c );
+        return consumeWhitespace();
     }
 
 
-    private Json parseArray() throws IOException, InvalidJsonException
+    private void parseArray() throws IOException, InvalidJsonException
     {
-        List< Json > array = new ArrayList<>();
+        handler.startArray();
 
         if( DEBUG_ARR ) System.out.println( "    Starting array..." );
 
@@ -289,7 +401,8 @@ public class JsonParser
 
         if( ']' == c )// Empty array.
         {
-            return new Json( array );
+            handler.endArray();
+            return;
         }
         else if( -1 == c ) // Unterminated array.
         {
@@ -301,16 +414,10 @@ public class JsonParser
         {
             if( DEBUG_ARR ) System.out.println( "        Reading array element [" + k + "] (with lookahead c: [" + ((char) c) + "])" );
 
-            final Json element = parseElement( c );
-
-            if( DEBUG_ARR ) element.dump();
-
-            c = element.lookahead();
+            c = parseElement( c );
 
             if( DEBUG_ARR ) System.out.println( "        lookahead c: [" + ((char) c) + "] after array element consumed." );
 
-            array.add( element );
-
             if( ']' == c )
             {
                 break; // End of the array.
@@ -329,23 +436,22 @@ public class JsonParser
             }
         }
 
-        return new Json( array );
+        handler.endArray();
     }
 
 
-    private Json parseElement( int c ) throws IOException, InvalidJsonException
+    /**
+     * @return The first non-whitespace character after the element.
+     */
+    private int parseElement( int c ) throws IOException, InvalidJsonException
     {
         c = consumeWhitespace( c );
 
         if( DEBUG_ARR ) System.out.println( "Starting on value (prob in array)..." );
 
-        Json j = parseValue( c );
-
-        if( DEBUG_INPUT ) j.dump();
-
-        c = consumeWhitespace( j.lookahead() );
+        parseValue( c );
 
-        return new Json( j, c );
+        return consumeWhitespace();
     }
 
 
@@ -368,373 +474,48 @@ public class JsonParser
      * @throws IOException
      * @throws InvalidJsonException
      */
-    private Json parseLiteral( int c ) throws IOException, InvalidJsonException
-    {
-        if( -1 == c ) throw new InvalidJsonException( "JSON aborted at the start of a literal." );
-
-        if( '-' == c )
-        {
-            return parseNumber( true, isr.read() );
-        }
-        else if( 'f' == c )
-        {
-            int d = isr.read();
-            int e = isr.read();
-            int f = isr.read();
-            int g = isr.read();
-
-            if( 'a' != d || 'l' != e || 's' != f || 'e' != g )
-            {
-                throw new InvalidJsonException( "(false) literal started, but unfinished." );
-            }
-
-            return new Json( false );
-        }
-        else if( 't' == c )
-        {
-            int d = isr.read();
-            int e = isr.read();
-            int f = isr.read();
-
-            if( 'r' != d || 'u' != e || 'e' != f )
-            {
-                throw new InvalidJsonException( "(true) literal started, but unfinished." );
-            }
-
-            return new Json( true );
-        }
-        else if( 'n' == c )
-        {
-            int d = isr.read();
-            int e = isr.read();
-            int f = isr.read();
-
-            if( 'u' != d || 'l' != e || 'l' != f )
-            {
-                throw new InvalidJsonException( "(null) literal started, but unfinished." );
-            }
-
-            return new Json( null );
-        }
-        else
-        {
-            return parseNumber( false, c );
-        }
-    }
-
-
-    private Json parseNumber( boolean isNegative, int c ) throws IOException, InvalidJsonException
+    private void parseLiteral( int c ) throws IOException, InvalidJsonException
     {
-        if( -1 == c ) throw new InvalidJsonException( "JSON aborted at the magnitude (after sign) of a number." );
-
-        StringBuilder buf = new StringBuilder();
-        if( isNegative ) buf.append( "-" );
+        final int type = in.parseLiteral( c );
 
-        Json j;
-
-        if( '0' == c ) // Fractional (e.g., 0.123) or the ZERO literal (0)
+        if( null != exact && (Json.JSON_LONG == type || Json.JSON_DOUBLE == type || Json.JSON_INVALID == type && in.isIntegral()) )
         {
-            c = isr.read();
-
-            if( '.' == c )
-            {
-                buf.append( "0." );
-
-                j = parseNumberPostfix( buf, isr.read(), true, false );
-            }
-            else if( 'e' == c || 'E' == c )
-            {
-                j = parseNumberPostfix( buf, c, false, true );
-
-                return new Json( Long.valueOf( 0 ), j.lookahead() );
-            }
-            else
-            {
-                // NOTE - Zero can just end the number, without anything follow.
-
-                return new Json( Long.valueOf( 0 ), c );
-            }
-        }
-        else // Not fractional, so must be non-zero digit ("normal" number)
-        {
-            switch( c )
-            {
-                case '1':
-                case '2':
-                case '3':
-                case '4':
-                case '5':
-                case '6':
-                case '7':
-                case '8':
-                case '9':
-                    buf.append( (char) c );
-                    break;
-
-                default:
-                    throw new InvalidJsonException( "Bad start to number (" + c + ")" );
-            }
-
-            j = parseNumberPostfix( buf, isr.read(), false, true );
+            // NOTE - Even an integer which could not be converted is kept.
+            exact.numberValue( in );
+            return;
         }
 
-        return j;
-    }
-
-
-    private Json parseNumberPostfix( StringBuilder buf, int c, boolean isInFraction, boolean hasNumericAlready ) throws IOException, InvalidJsonException
-    {
-        boolean hasNumericPart      = hasNumericAlready;
-        boolean isInExponent        = false;
-        boolean isInExponentNumeric = false;
-
-        do
+        switch( type )
         {
-            if( !isBareLiteral && -1 == c ) throw new InvalidJsonException( "JSON aborted in number." );
-
-            switch( c )
-            {
-                case '0':
-                case '1':
-                case '2':
-                case '3':
-                case '4':
-                case '5':
-                case '6':
-                case '7':
-                case '8':
-                case '9':
-                    hasNumericPart = true;
-                    buf.append( (char) c );
-                    break;
-
-                case '.':
-                    if( isInFraction ) throw new InvalidJsonException( "Two periods inside one number." );
-                    if( isInExponent ) throw new InvalidJsonException( "Periods inside exponent." );
-                    isInFraction = true;
-                    buf.append( (char) c );
-                    break;
-
-                case 'E':
-                case 'e':
-                    if( !hasNumericPart ) throw new InvalidJsonException( "No numeric before exponent." );
-                    if( isInExponent ) throw new InvalidJsonException( "Two exponents inside one number." );
-                    isInExponent = true;
-                    buf.append( (char) c );
-                    c = isr.read();
-                    // Check if this is a sign.  If so, add to buf.  If not, check if digit.
-                    switch( c )
-                    {
-                        case '+': // We ignore + signs in floats.
-                            break;
-
-                        case '-':
-                            if( isInExponentNumeric )
-                                throw new InvalidJsonException( "More than one sign (or misplaced sign) in exponent." );
-
-                        case '1':
-                        case '2':
-                        case '3':
-                        case '4':
-                        case '5':
-                        case '6':
-                        case '7':
-                        case '8':
-                        case '9':
-                            buf.append( (char) c );
-                            break;
-
-                        default:
-                            throw new InvalidJsonException( "Unexpected character [" + c + "] in exponent." );
-                    }
-                    isInExponentNumeric = true;
-                    break;
-
-                default:
-                    String s = buf.toString();
-                    if( isInFraction || isInExponent )
-                    {
-                        try
-                        {
-                            // This is a double.
-                            if( DEBUG_NUM ) System.out.println( "  ==> Converting [" + s + "]..." );
-                            final double dbl = Double.parseDouble( s );
-
-                            if( DEBUG_NUM ) System.out.println( "      Converted [" + s + "] to (" + dbl + ")" );
-                            return new Json( dbl, c );
-                        }
-                        catch( NumberFormatException nfe )
-                        {
-                            return new Json( 0, c );
-                        }
-                    }
-                    else
-                    {
-                        try
-                        {
-                            // This is an integer.
-                            if( DEBUG_NUM ) System.out.println( "  ==> Converting [" + s + "]..." );
-                            final long l = Long.parseLong( s );
-
-                            if( DEBUG_NUM ) System.out.println( "      Converted [" + s + "] to (" + l + ")" );
-                            return new Json( l, c );
-                        }
-                        catch( NumberFormatException nfe )
-                        {
-                            return new Json( 0, c );
-                        }
-                    }
-            }
-
-            // Read next character.  Don't forget this, just because it's do-while.
-            c = isr.read();
-
-        } while( true );
-    }
-
+            case Json.JSON_FALSE:
+                handler.booleanValue( false );
+                break;
 
-    /**
-     * @return Json
-     */
-    private Json parseString() throws IOException, InvalidJsonException
-    {
-        StringBuilder buf = new StringBuilder();
+            case Json.JSON_TRUE:
+                handler.booleanValue( true );
+                break;
 
-        while( true )
-        {
-            int c = isr.read();
+            case Json.JSON_NULL:
+                handler.nullValue();
+                break;
 
-            if( DEBUG_STR ) System.out.println( "        > Reading [" + c + "]" );
+            case Json.JSON_LONG:
+                handler.longValue( in.longValue() );
+                break;
 
-            if( -1 == c )
-            {
-                throw new InvalidJsonException( "JSON aborted in the middle of string." );
-            }
-            else if( '\\' == c )
-            {
-                int d = isr.read();
-                if( -1 == d ) throw new InvalidJsonException( "JSON aborted in the middle of string." );
+            case Json.JSON_DOUBLE:
+                handler.doubleValue( in.doubleValue() );
+                break;
 
-                switch( d )
-                {
-                    case '"':
-                    case '\\':
-                    case '/':
-                        buf.append( (char) d );
-                        break;
-
-                    case 'b':
-                        buf.append( "\b" );
-                        break;
-                    case 'f':
-                        buf.append( "\f" );
-                        break;
-                    case 'n':
-                        buf.append( "\n" );
-                        break;
-                    case 'r':
-                        buf.append( "\r" );
-                        break;
-                    case 't':
-                        buf.append( "\t" );
-                        break;
-
-                    case 'u':
-                    {
-                        if( DEBUG_STR ) System.out.println( "  Encountered Unicode escape..." );
-
-                        int e = isr.read();
-                        int f = isr.read();
-                        int g = isr.read();
-                        int h = isr.read();
-
-                        if( isHexDigit( e ) && isHexDigit( f ) && isHexDigit( g ) && isHexDigit( h ) )
-                        {
-                            // Valid unicode escape sequence.
-                            StringBuilder sb = new StringBuilder( "\\u" );
-                            sb.append( (char) e ).append( (char) f ).append( (char) g ).append( (char) h );
-                            if( DEBUG_STR ) System.out.println( "    ==> Converting [" + sb + "]..." );
-
-                            Properties p = new Properties();
-                            p.load( new StringReader( "key = " + sb ) );
-                            final String uc = p.getProperty( "key" );
-
-                            if( DEBUG_STR ) System.out.println( "        Converted  [" + sb + "] to \"" + uc + "\"" );
-
-                            buf.append( uc );
-                        }
-                        else
-                        {
-                            // Invalid unicode escape sequence.
-                            throw new InvalidJsonException( "Invalid Unicode escape sequence." );
-                        }
-                        break;
-                    }
-
-                    default:
-                        throw new InvalidJsonException( "Invalid JSON string escape sequence [\\" + d + "]" );
-                }
-            }
-            else if( '"' == c )
-            {
-                if( DEBUG_STR ) System.out.println( "--End of string." );
-                break; // Termination of a string.
-            }
-            else if( '\n' == c )
-            {
-                throw new InvalidJsonException( "Unescaped newline found in string." );
-            }
-            else if( '\t' == c )
-            {
-                throw new InvalidJsonException( "Unescaped tab found in string." );
-            }
-            else
-            {
-                buf.append( (char) c );
-            }
+            default:
+                handler.longValue( 0 ); // Number could not be converted.
+                break;
         }
-
-        final String s = buf.toString();
-
-        if( DEBUG_STR ) System.out.println( "s: [" + s + "], len: " + s.length() );
-        if( DEBUG_STR ) System.out.println( "  ==> string!" );
-
-        return new Json( s );
     }
 
 
-    private static boolean isHexDigit( int c )
+    private void parseString() throws IOException, InvalidJsonException
     {
-        switch( c )
-        {
-            case '0':
-            case '1':
-            case '2':
-            case '3':
-            case '4':
-            case '5':
-            case '6':
-            case '7':
-            case '8':
-            case '9':
-
-            case 'a':
-            case 'b':
-            case 'c':
-            case 'd':
-            case 'e':
-            case 'f':
-
-            case 'A':
-            case 'B':
-            case 'C':
-            case 'D':
-            case 'E':
-            case 'F':
-                return true;
-
-            default:
-                return false;
-        }
+        handler.stringValue( in.readString() );
     }
 }
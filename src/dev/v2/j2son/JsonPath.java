@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) 2013-2025 - Troy Wu
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.v2.j2son;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * A path into a Json tree, such as "a.b.[3].c", split into its segments
+ * once, so that it can be followed through any number of trees.  Each
+ * segment is a key (of an object member), an index in brackets (of an array
+ * element), or a wildcard: "*" for every member or element, "[*]" for every
+ * element.  (Before wildcards, a "*" segment looked up the member whose
+ * key is "*"; such a member is now only matched along with all the others.)
+ * <p>
+ * Json.find( String ) compiles its paths through a small cache, so the same
+ * few paths, used over and over, are each only compiled once.  Lookups in it
+ * take no lock.  When it is full, the least recently used eighth of it is
+ * dropped to make room; recency is counted in misses, not in every lookup.
+ */
+public final class JsonPath
+{
+    static final int CACHE_SIZE = 1024;
+
+    private static final int KEY     = -1;
+    private static final int ANY     = -2; // NOTE - A member or an element.
+    private static final int ELEMENT = -3; // Any element.
+    private static final int NOTHING = -4; // A bad index, such as "[x]"; matches nothing.
+
+    private static final Map< String, JsonPath > CACHE = new ConcurrentHashMap<>( 64 );
+    private static final AtomicLong              CLOCK = new AtomicLong(); // NOTE - Ticks once per miss.
+
+    private final String   path;
+    private final String[] keys;    // For each segment, its key (or null) ...
+    private final int[]    indices; // ... or its index, or one of the kinds above.
+
+    private volatile long lastUsed; // NOTE - The cache's clock when this was last looked up.
+
+
+    private JsonPath( final String path, final String[] keys, final int[] indices )
+    {
+        this.path    = path;
+        this.keys    = keys;
+        this.indices = indices;
+    }
+
+
+    /**
+     * Splits a path into its segments, at each '.'; an empty path is the
+     * tree itself, and a '.' at the end is ignored.
+     */
+    public static JsonPath compile( final String path )
+    {
+        final List< String > segments = new ArrayList<>();
+
+        if( !path.isEmpty() )
+        {
+            int start = 0;
+
+            for( int dot; -1 != (dot = path.indexOf( '.', start )); start = dot + 1 )
+            {
+                segments.add( path.substring( start, dot ) );
+            }
+
+            if( start < path.length() ) segments.add( path.substring( start ) );
+        }
+
+        final String[] keys    = new String[segments.size()];
+        final int[]    indices = new int[segments.size()];
+
+        for( int i = 0; i < keys.length; ++i )
+        {
+            final String segment = segments.get( i );
+
+            if( "*".equals( segment ) )
+            {
+                indices[i] = ANY;
+            }
+            else if( "[*]".equals( segment ) )
+            {
+                indices[i] = ELEMENT;
+            }
+            else if( segment.startsWith( "[" ) && segment.endsWith( "]" ) )
+            {
+                indices[i] = index( segment.substring( 1, segment.length() - 1 ) );
+            }
+            else
+            {
+                keys[i]    = segment;
+                indices[i] = KEY;
+            }
+        }
+
+        if( Json.DEBUG_SEARCH ) System.out.println( "compiled: " + path + " --> " + segments );
+
+        return new JsonPath( path, keys, indices );
+    }
+
+
+    /**
+     * @return The compiled path, from the cache if it was compiled recently.
+     */
+    static JsonPath cached( final String path )
+    {
+        JsonPath compiled = CACHE.get( path );
+
+        if( null == compiled )
+        {
+            // NOTE - Racing threads may each compile the same path; any of them will do.
+            compiled          = compile( path );
+            compiled.lastUsed = CLOCK.incrementAndGet();
+
+            if( CACHE.size() >= CACHE_SIZE ) evict();
+
+            CACHE.put( path, compiled );
+        }
+        else
+        {
+            // NOTE - The clock only moves on a miss, so a hot path is rarely written (or its cache line bounced).
+            final long now = CLOCK.get();
+            if( now != compiled.lastUsed ) compiled.lastUsed = now;
+        }
+
+        return compiled;
+    }
+
+
+    /**
+     * Drops the eighth of the cache which was used least recently.
+     */
+    private static void evict()
+    {
+        synchronized( CACHE )
+        {
+            if( CACHE.size() < CACHE_SIZE ) return; // NOTE - Another thread has just made room.
+
+            final long[] used = new long[CACHE_SIZE + 64]; // NOTE - Room for a few racing inserts.
+            int          size = 0;
+
+            for( final JsonPath compiled : CACHE.values() )
+            {
+                if( size == used.length ) break;
+                used[size++] = compiled.lastUsed;
+            }
+
+            int n = CACHE_SIZE / 8;
+
+            Arrays.sort( used, 0, size );
+            final long oldest = used[n - 1];
+
+            final Iterator< JsonPath > it = CACHE.values().iterator();
+            while( n > 0 && it.hasNext() )
+            {
+                if( it.next().lastUsed <= oldest )
+                {
+                    it.remove();
+                    --n;
+                }
+            }
+        }
+    }
+
+
+    private static int index( final String digits )
+    {
+        try
+        {
+            final int index = Integer.parseInt( digits );
+            return index < 0 ? NOTHING : index;
+        }
+        catch( NumberFormatException e )
+        {
+            return NOTHING;
+        }
+    }
+
+
+    /**
+     * @return The first value at this path in json (in document order, past
+     * any wildcards), or null if there is none.
+     */
+    public Json find( final Json json )
+    {
+        return find( json, 0 );
+    }
+
+
+    /**
+     * @return Every value at this path in json, in document order; e.g.,
+     * "items.[*].id" gives the id of each item.
+     */
+    public List< Json > findAll( final Json json )
+    {
+        final List< Json > found = new ArrayList<>();
+
+        findAll( json, 0, found );
+        return found;
+    }
+
+
+    /**
+     * @return The first value at the rest of this path, from segment i on,
+     * in json.
+     */
+    Json find( Json json, int i )
+    {
+        // NOTE - Keys and indices, one after another, are simply walked; only a wildcard needs to try each branch.
+        for( ; i < indices.length && null != json; ++i )
+        {
+            if( ANY != indices[i] && ELEMENT != indices[i] )
+            {
+                json = child( json, i );
+                continue;
+            }
+
+            for( final Json child : children( json, indices[i] ) )
+            {
+                final Json found = find( child, i + 1 );
+                if( null != found ) return found;
+            }
+
+            return null;
+        }
+
+        return json;
+    }
+
+
+    private void findAll( Json json, int i, final List< Json > found )
+    {
+        for( ; i < indices.length && null != json; ++i )
+        {
+            if( ANY != indices[i] && ELEMENT != indices[i] )
+            {
+                json = child( json, i );
+                continue;
+            }
+
+            for( final Json child : children( json, indices[i] ) ) findAll( child, i + 1, found );
+            return;
+        }
+
+        if( null != json ) found.add( json );
+    }
+
+
+    /**
+     * @return The number of segments.
+     */
+    int size()
+    {
+        return indices.length;
+    }
+
+
+    /**
+     * @return Whether segment i takes the member with this key.
+     */
+    boolean matchesKey( final int i, final String key )
+    {
+        return ANY == indices[i] || KEY == indices[i] && keys[i].equals( key );
+    }
+
+
+    /**
+     * @return Whether segment i takes the element at this index.
+     */
+    boolean matchesIndex( final int i, final int index )
+    {
+        return index == indices[i] || ANY == indices[i] || ELEMENT == indices[i];
+    }
+
+
+    /**
+     * @return The member or element which segment i names, or null.
+     */
+    private Json child( final Json json, final int i )
+    {
+        final int index = indices[i];
+
+        if( KEY == index )
+        {
+            if( !json.isObject() ) return null;
+
+            final Json child = json.getMap().get( keys[i] );
+
+            if( Json.DEBUG_JSON_WALK && null != child ) child.dump();
+            return child;
+        }
+
+        if( NOTHING == index || !json.isArray() ) return null;
+
+        return json.element( index );
+    }
+
+
+    private static Iterable< Json > children( final Json json, final int kind )
+    {
+        if( json.isArray() ) return json.elements();
+
+        return json.isObject() && ANY == kind ? json.getMap().values() : Collections.< Json >emptyList();
+    }
+
+
+    @Override
+    public String toString()
+    {
+        return path;
+    }
+}
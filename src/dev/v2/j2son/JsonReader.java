@@ -0,0 +1,383 @@
+/*
+ * Copyright (c) 2013-2025 - Troy Wu
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.v2.j2son;
+
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+
+/**
+ * A pull-style tokenizer, which walks the same grammar as JsonParser, but
+ * never builds a tree.  Each call to nextToken() advances by one token; the
+ * value of a scalar token, and the name of an object member, are then
+ * available from the getters.
+ * <p>
+ * Memory use is constant, apart from a small stack which grows with nesting
+ * depth.
+ * <pre>
+ * try( JsonReader r = new JsonReader( input ) )
+ * {
+ *     int t;
+ *     while( JsonReader.TOKEN_END_OF_INPUT != (t = r.nextToken()) )
+ *     {
+ *         if( JsonReader.TOKEN_LONG == t &amp;&amp; "id".equals( r.currentName() ) ) ...
+ *     }
+ * }
+ * </pre>
+ *
+ * @see JsonParser
+ */
+public final class JsonReader implements Closeable
+{
+    public static final int TOKEN_END_OF_INPUT = -1;
+    public static final int TOKEN_START_OBJECT = 1;
+    public static final int TOKEN_END_OBJECT   = 2;
+    public static final int TOKEN_START_ARRAY  = 3;
+    public static final int TOKEN_END_ARRAY    = 4;
+    public static final int TOKEN_STRING       = 5;
+    public static final int TOKEN_LONG         = 6;
+    public static final int TOKEN_DOUBLE       = 7;
+    public static final int TOKEN_TRUE         = 8;
+    public static final int TOKEN_FALSE        = 9;
+    public static final int TOKEN_NULL         = 10;
+
+    // Container states, one per level of nesting.
+    private static final byte ARRAY_FIRST  = 0; // Expecting first element or ']'.
+    private static final byte ARRAY_NEXT   = 1; // Expecting ',' or ']'.
+    private static final byte OBJECT_FIRST = 2; // Expecting first member or '}'.
+    private static final byte OBJECT_NEXT  = 3; // Expecting ',' or '}'.
+
+    private final JsonInput in;
+    private final Closeable src; // NOTE - null for in-memory input.
+
+    private byte[]   states = new byte[16];
+    private String[] names  = new String[16]; // Member name of each open container.
+    private int      depth  = 0;
+
+    private boolean hasValue = false; // Has the top-level value been started?
+
+    private int    token = 0;
+    private String name;
+    private String string;
+    private long   longValue;
+    private double doubleValue;
+
+
+    public JsonReader( final String input )
+    {
+        final byte[] bytes = input.getBytes( StandardCharsets.UTF_8 );
+
+        this.in  = new JsonInput( bytes, 0, bytes.length );
+        this.src = null;
+    }
+
+
+    public JsonReader( final byte[] input, final int offset, final int length )
+    {
+        this.in  = new JsonInput( input, offset, length );
+        this.src = null;
+    }
+
+
+    /**
+     * Reads UTF-8 encoded JSON from a stream, which close() will close.
+     */
+    public JsonReader( final InputStream input )
+    {
+        this.in  = new JsonInput( input );
+        this.src = input;
+    }
+
+
+    /**
+     * Reads JSON from a character stream, which close() will close.
+     */
+    public JsonReader( final Reader input )
+    {
+        this.in  = new JsonInput( new ReaderInputStream( input ) );
+        this.src = input;
+    }
+
+
+    /**
+     * Advances to the next token.  Content after the top-level value is
+     * ignored, just as JsonParser ignores it.
+     *
+     * @return One of the TOKEN_ constants; TOKEN_END_OF_INPUT once the
+     * top-level value is complete.
+     */
+    public int nextToken() throws IOException, InvalidJsonException
+    {
+        string = null;
+
+        if( 0 == depth )
+        {
+            if( hasValue ) return token = TOKEN_END_OF_INPUT;
+
+            hasValue = true;
+            name     = null;
+
+            return token = readValue( consumeWhitespace() );
+        }
+
+        int c = in.skipWhitespace( in.read() );
+
+        switch( states[depth - 1] )
+        {
+            case ARRAY_FIRST:
+                if( ']' == c ) return token = endContainer();
+                if( -1 == c ) throw new InvalidJsonException( "Unterminated array." );
+
+                states[depth - 1] = ARRAY_NEXT;
+                name              = null;
+
+                return token = readValue( c );
+
+            case ARRAY_NEXT:
+                if( ']' == c ) return token = endContainer();
+                if( -1 == c ) throw new InvalidJsonException( "JSON terminated in whitespace" );
+                if( ',' != c ) throw new InvalidJsonException( "Invalid character (not comma or end-bracket) in array." );
+
+                name = null;
+
+                return token = readValue( consumeWhitespace() );
+
+            case OBJECT_FIRST:
+                if( '}' == c ) return token = endContainer();
+
+                states[depth - 1] = OBJECT_NEXT;
+
+                return token = readMember( c );
+
+            default: // OBJECT_NEXT
+                if( '}' == c ) return token = endContainer();
+                if( -1 == c ) throw new InvalidJsonException( "JSON terminated in whitespace" );
+                if( ',' != c ) throw new InvalidJsonException( "Invalid character (not comma or end-curly) in map." );
+
+                return token = readMember( consumeWhitespace() );
+        }
+    }
+
+
+    /**
+     * Skips the rest of the current object or array: right after
+     * TOKEN_START_OBJECT (or TOKEN_START_ARRAY), steps over everything up to
+     * the matching end, without decoding or allocating anything, since only
+     * brackets and double-quotes (and escapes in strings) are tracked; what
+     * is skipped is not checked.  The reader is then just as if nextToken()
+     * had returned the end token.  For any other token, does nothing.
+     *
+     * @return The current token.
+     */
+    public int skipValue() throws IOException, InvalidJsonException
+    {
+        if( TOKEN_START_OBJECT != token && TOKEN_START_ARRAY != token ) return token;
+
+        in.skipValue( TOKEN_START_OBJECT == token ? '{' : '[' );
+
+        return token = endContainer();
+    }
+
+
+    /**
+     * @return The token most recently returned by nextToken().
+     */
+    public int currentToken()
+    {
+        return token;
+    }
+
+
+    /**
+     * @return The member name of the current value (or, for an end token, of
+     * the container just closed); null for array elements and the top level.
+     */
+    public String currentName()
+    {
+        return name;
+    }
+
+
+    /**
+     * @return Nesting depth of the current token; 0 for top-level scalars.
+     */
+    public int depth()
+    {
+        return depth;
+    }
+
+
+    public String getString()
+    {
+        return string;
+    }
+
+
+    public long getLong()
+    {
+        switch( token )
+        {
+            case TOKEN_LONG:
+                return longValue;
+            case TOKEN_DOUBLE:
+                return (long) doubleValue;
+            default:
+                return -1L;
+        }
+    }
+
+
+    public double getDouble()
+    {
+        switch( token )
+        {
+            case TOKEN_DOUBLE:
+                return doubleValue;
+            case TOKEN_LONG:
+                return (double) longValue;
+            default:
+                return -1.0d;
+        }
+    }
+
+
+    public boolean getBoolean()
+    {
+        return TOKEN_TRUE == token;
+    }
+
+
+    @Override
+    public void close() throws IOException
+    {
+        if( null != src ) src.close();
+    }
+
+
+    private int consumeWhitespace() throws IOException, InvalidJsonException
+    {
+        final int c = in.skipWhitespace( in.read() );
+
+        if( -1 == c ) throw new InvalidJsonException( "JSON terminated in whitespace" );
+
+        return c;
+    }
+
+
+    private int readMember( int c ) throws IOException, InvalidJsonException
+    {
+        if( '"' != c )
+        {
+            throw new InvalidJsonException( "No key (no st arting double-quote) for object member." );
+        }
+        name = in.readKey();
+
+        c = consumeWhitespace();
+        if( ':' != c )
+        {
+            throw new InvalidJsonException( "No ':' for object member." );
+        }
+
+        return readValue( consumeWhitespace() );
+    }
+
+
+    private int readValue( final int c ) throws IOException, InvalidJsonException
+    {
+        switch( c )
+        {
+            case '{':
+                startContainer( OBJECT_FIRST );
+                return TOKEN_START_OBJECT;
+
+            case '[':
+                startContainer( ARRAY_FIRST );
+                return TOKEN_START_ARRAY;
+
+            case '"':
+                string = in.readString();
+                return TOKEN_STRING;
+
+            default:
+                break;
+        }
+
+        switch( in.parseLiteral( c ) )
+        {
+            case Json.JSON_FALSE:
+                return TOKEN_FALSE;
+
+            case Json.JSON_TRUE:
+                return TOKEN_TRUE;
+
+            case Json.JSON_NULL:
+                return TOKEN_NULL;
+
+            case Json.JSON_LONG:
+                longValue = in.longValue();
+                return TOKEN_LONG;
+
+            case Json.JSON_DOUBLE:
+                doubleValue = in.doubleValue();
+                return TOKEN_DOUBLE;
+
+            default:
+                // NOTE - Unconvertible numbers read as zero, just as they do in a Json tree.
+                longValue = 0;
+                return TOKEN_LONG;
+        }
+    }
+
+
+    private void startContainer( final byte state )
+    {
+        if( depth == states.length )
+        {
+            states = Arrays.copyOf( states, 2 * depth );
+            names  = Arrays.copyOf( names, 2 * depth );
+        }
+
+        states[depth] = state;
+        names[depth]  = name;
+        ++depth;
+    }
+
+
+    private int endContainer()
+    {
+        --depth;
+
+        final boolean isObject = OBJECT_FIRST == states[depth] || OBJECT_NEXT == states[depth];
+
+        name         = names[depth];
+        names[depth] = null;
+
+        return isObject ? TOKEN_END_OBJECT : TOKEN_END_ARRAY;
+    }
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2013-2025 - Troy Wu
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.v2.j2son;
+
+
+import java.util.Arrays;
+
+
+/**
+ * The keys of an object, in order, with an index over them.  Objects with
+ * the same keys in the same order (e.g., the records of a large array) share
+ * one shape, so each holds nothing but its values; a key's member number in
+ * the shape is the index of its value.
+ * <p>
+ * A shape is only changed while it belongs to one object; once sealed, it
+ * may be shared, and an object which changes its keys copies it first.
+ *
+ * @see JsonObjectMap
+ */
+final class JsonShape
+{
+    static final int MAX_LINEAR = 8; // NOTE - Up to this many keys, a scan beats hashing.
+
+    String[] keys;
+    int      size;
+
+    // NOTE - Only for more than MAX_LINEAR keys.
+    private int[] hashes;
+    private int[] index; // Member number + 1, by hash; 0 is an empty slot.
+
+
+    /**
+     * Shapes seen while parsing one document, by their keys; so that
+     * objects which recur, but not one right after another, still share.
+     */
+    static final class Cache
+    {
+        private final JsonShape[] shapes = new JsonShape[256];
+
+        /**
+         * @return A sealed shape with the same keys as shape; which is shape
+         * itself, if none is cached.
+         */
+        JsonShape intern( final JsonShape shape )
+        {
+            int h = 0;
+            for( int i = 0; i < shape.size; ++i ) h = 31 * h + shape.keys[i].hashCode();
+
+            final int       slot   = (h ^ (h >>> 16)) & (shapes.length - 1);
+            final JsonShape cached = shapes[slot];
+
+            if( null != cached && cached.hasKeys( shape.keys, shape.size ) ) return cached;
+
+            shapes[slot] = shape;
+            return shape;
+        }
+    }
+
+
+    JsonShape( final int capacity )
+    {
+        this.keys = new String[Math.max( 4, capacity )];
+    }
+
+
+    /**
+     * @return A copy of the first n keys, for an object to change.
+     */
+    JsonShape copy( final int n )
+    {
+        final JsonShape copy = new JsonShape( n + 4 );
+
+        System.arraycopy( keys, 0, copy.keys, 0, n );
+        copy.size = n;
+
+        if( n > MAX_LINEAR )
+        {
+            copy.hashes = Arrays.copyOf( hashes, copy.keys.length );
+            copy.reindex();
+        }
+
+        return copy;
+    }
+
+
+    /**
+     * Appends a key while parsing, without indexing it or looking for it;
+     * seal() does both.
+     */
+    void add( final String key )
+    {
+        if( size == keys.length ) grow();
+
+        keys[size++] = key;
+    }
+
+
+    /**
+     * Trims the keys to their count, and indexes them if there are many.
+     *
+     * @return False if any key is there twice, leaving the shape unsealed.
+     */
+    boolean seal()
+    {
+        if( size < keys.length ) keys = Arrays.copyOf( keys, size );
+
+        if( size <= MAX_LINEAR )
+        {
+            hashes = null;
+            index  = null;
+
+            for( int i = 1; i < size; ++i )
+            {
+                for( int j = 0; j < i; ++j )
+                {
+                    if( keys[j].equals( keys[i] ) ) return false;
+                }
+            }
+
+            return true;
+        }
+
+        hashes = new int[size];
+        index  = new int[tableSize( size )];
+
+        for( int i = 0; i < size; ++i )
+        {
+            hashes[i] = hash( keys[i] );
+            if( !insert( i ) ) return false;
+        }
+
+        return true;
+    }
+
+
+    /**
+     * @return The member number of key, or -1.
+     */
+    int find( final Object key )
+    {
+        if( !(key instanceof String) ) return -1;
+
+        if( null == index )
+        {
+            // NOTE - Keys from the key cache are often the very same String.
+            for( int i = 0; i < size; ++i )
+            {
+                if( key == keys[i] ) return i;
+            }
+            for( int i = 0; i < size; ++i )
+            {
+                if( key.equals( keys[i] ) ) return i;
+            }
+            return -1;
+        }
+
+        final int h    = hash( (String) key );
+        final int mask = index.length - 1;
+
+        for( int slot = h & mask; ; slot = (slot + 1) & mask )
+        {
+            final int m = index[slot] - 1;
+
+            if( m < 0 ) return -1;
+            if( hashes[m] == h && (key == keys[m] || key.equals( keys[m] )) ) return m;
+        }
+    }
+
+
+    /**
+     * Appends a key which is not there yet, keeping the index up to date.
+     */
+    void append( final String key )
+    {
+        if( size == keys.length ) grow();
+
+        keys[size] = key;
+
+        if( null != index )
+        {
+            hashes[size] = hash( key );
+            ++size;
+            if( 2 * size > index.length ) reindex();
+            else insert( size - 1 );
+        }
+        else if( ++size > MAX_LINEAR )
+        {
+            hashes = new int[keys.length];
+            for( int i = 0; i < size; ++i ) hashes[i] = hash( keys[i] );
+            reindex();
+        }
+    }
+
+
+    void removeAt( final int i )
+    {
+        final int tail = size - i - 1;
+
+        System.arraycopy( keys, i + 1, keys, i, tail );
+        if( null != hashes ) System.arraycopy( hashes, i + 1, hashes, i, tail );
+
+        keys[--size] = null;
+
+        // NOTE - Member numbers have shifted; rare enough to just start over.
+        if( null != index ) reindex();
+    }
+
+
+    /**
+     * @return Whether the keys are exactly keys[0, n), in order.
+     */
+    boolean hasKeys( final String[] keys, final int n )
+    {
+        if( n != size ) return false;
+
+        for( int i = 0; i < n; ++i )
+        {
+            if( keys[i] != this.keys[i] && !keys[i].equals( this.keys[i] ) ) return false;
+        }
+
+        return true;
+    }
+
+
+    private void grow()
+    {
+        keys = Arrays.copyOf( keys, Math.max( 4, 2 * keys.length ) );
+        if( null != hashes ) hashes = Arrays.copyOf( hashes, keys.length );
+    }
+
+
+    private void reindex()
+    {
+        index = new int[tableSize( size )];
+        for( int i = 0; i < size; ++i ) insert( i );
+    }
+
+
+    /**
+     * @return False (without inserting it) if key i equals one already
+     * indexed.
+     */
+    private boolean insert( final int i )
+    {
+        final int mask = index.length - 1;
+        final int h    = hashes[i];
+
+        int slot = h & mask;
+        for( int m; 0 != (m = index[slot]); slot = (slot + 1) & mask )
+        {
+            if( hashes[m - 1] == h && keys[m - 1].equals( keys[i] ) ) return false;
+        }
+
+        index[slot] = i + 1;
+        return true;
+    }
+
+
+    /**
+     * @return A power of two of at least twice n, so the index is at most
+     * half full.
+     */
+    private static int tableSize( final int n )
+    {
+        return Integer.highestOneBit( Math.max( 2, 2 * n ) - 1 ) << 1;
+    }
+
+
+    private static int hash( final String key )
+    {
+        final int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
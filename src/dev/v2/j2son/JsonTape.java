@@ -0,0 +1,408 @@
+/*
+ * Copyright (c) 2013-2025 - Troy Wu
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.v2.j2son;
+
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+
+
+/**
+ * A flat representation of parsed JSON, held in a few primitive arrays
+ * rather than a tree of objects.
+ * <p>
+ * Each value takes one long on the tape: a tag (the top byte) and a payload.
+ * <ul>
+ *     <li>'{' and '[' - the index of the matching end, and the member (or element) count</li>
+ *     <li>'}' and ']' - the index of the matching start</li>
+ *     <li>'"' - the offset of the UTF-8 bytes (after a 4-byte length) in the string buffer</li>
+ *     <li>'l' and 'd' - the index of the value (or its bits) in the number buffer</li>
+ *     <li>'t', 'f' and 'n' - nothing</li>
+ * </ul>
+ * An object's members are its key (a string) followed by its value.
+ * <p>
+ * The tape is navigated through Json views, each of which is just a
+ * position on the tape; values are only decoded when asked for.
+ *
+ * @see Json#parseTape(byte[], int, int)
+ */
+public final class JsonTape
+{
+    static final int START_OBJECT = '{';
+    static final int END_OBJECT   = '}';
+    static final int START_ARRAY  = '[';
+    static final int END_ARRAY    = ']';
+    static final int STRING       = '"';
+    static final int LONG         = 'l';
+    static final int DOUBLE       = 'd';
+    static final int TRUE         = 't';
+    static final int FALSE        = 'f';
+    static final int NULL         = 'n';
+
+    static final int TAG_SHIFT   = 56;
+    static final int COUNT_SHIFT = 32;
+    static final int MAX_COUNT   = 0xFFFFFF; // NOTE - Larger counts are saturated, and counted on demand.
+
+    private final long[] tape;
+    private final byte[] strings;
+    private final long[] numbers;
+
+
+    JsonTape( final long[] tape, final byte[] strings, final long[] numbers )
+    {
+        this.tape    = tape;
+        this.strings = strings;
+        this.numbers = numbers;
+    }
+
+
+    /**
+     * @return A view of the top-level value.
+     */
+    public Json root()
+    {
+        return new Node( null, 0 );
+    }
+
+
+    private int tag( final int index )
+    {
+        return (int) (tape[index] >>> TAG_SHIFT);
+    }
+
+
+    private int payload( final int index )
+    {
+        return (int) tape[index];
+    }
+
+
+    private int count( final int start )
+    {
+        return (int) (tape[start] >>> COUNT_SHIFT) & MAX_COUNT;
+    }
+
+
+    /**
+     * @return The index just past the value at index.
+     */
+    private int skip( final int index )
+    {
+        switch( tag( index ) )
+        {
+            case START_OBJECT:
+            case START_ARRAY:
+                return payload( index ) + 1;
+
+            default:
+                return index + 1;
+        }
+    }
+
+
+    private int stringLength( final int offset )
+    {
+        return ((strings[offset] & 0xFF) << 24) | ((strings[offset + 1] & 0xFF) << 16) | ((strings[offset + 2] & 0xFF) << 8) | (strings[offset + 3] & 0xFF);
+    }
+
+
+    private String string( final int index )
+    {
+        final int offset = payload( index );
+
+        return new String( strings, offset + 4, stringLength( offset ), StandardCharsets.UTF_8 );
+    }
+
+
+    private static int typeOf( final int tag )
+    {
+        switch( tag )
+        {
+            case START_OBJECT:
+                return Json.JSON_OBJECT;
+            case START_ARRAY:
+                return Json.JSON_ARRAY;
+            case STRING:
+                return Json.JSON_STRING;
+            case LONG:
+                return Json.JSON_LONG;
+            case DOUBLE:
+                return Json.JSON_DOUBLE;
+            case TRUE:
+            case FALSE:
+                return Json.JSON_BOOLEAN;
+            case NULL:
+                return Json.JSON_NULL;
+            default:
+                return Json.JSON_INVALID;
+        }
+    }
+
+
+    /**
+     * A value on the tape, seen as a Json.
+     */
+    private final class Node extends Json
+    {
+        private final int index;
+
+        private Object value; // NOTE - Decoded on first use.
+
+        Node( final String key, final int index )
+        {
+            super( key, typeOf( tag( index ) ) );
+            this.index = index;
+        }
+
+        @Override
+        public Object getValue()
+        {
+            if( null == value ) value = decode();
+            return value;
+        }
+
+        @Override
+        public boolean getBoolean()
+        {
+            return TRUE == tag( index );
+        }
+
+        @Override
+        public long getLong()
+        {
+            return isLong() ? numbers[payload( index )] : -1L;
+        }
+
+        @Override
+        public double getDouble()
+        {
+            return isDouble() ? Double.longBitsToDouble( numbers[payload( index )] ) : -1.0d;
+        }
+
+        private Object decode()
+        {
+            switch( tag( index ) )
+            {
+                case START_OBJECT:
+                    return new ObjectView( index );
+                case START_ARRAY:
+                    return new ArrayView( index );
+                case STRING:
+                    return string( index );
+                case LONG:
+                    return numbers[payload( index )];
+                case DOUBLE:
+                    return Double.longBitsToDouble( numbers[payload( index )] );
+                case TRUE:
+                    return Boolean.TRUE;
+                case FALSE:
+                    return Boolean.FALSE;
+                default:
+                    return null;
+            }
+        }
+    }
+
+
+    /**
+     * The elements of an array on the tape.
+     */
+    private final class ArrayView extends AbstractList< Json > implements RandomAccess
+    {
+        private final int start;
+        private final int end;
+        private int[]     elements; // NOTE - Indexed on first random access.
+
+        ArrayView( final int start )
+        {
+            this.start = start;
+            this.end   = payload( start );
+        }
+
+        @Override
+        public int size()
+        {
+            final int count = count( start );
+            return count < MAX_COUNT ? count : elements().length;
+        }
+
+        @Override
+        public Json get( final int i )
+        {
+            return new Node( null, elements()[i] );
+        }
+
+        @Override
+        public Iterator< Json > iterator()
+        {
+            return new Iterator< Json >()
+            {
+                private int next = start + 1;
+
+                @Override
+                public boolean hasNext()
+                {
+                    return next < end;
+                }
+
+                @Override
+                public Json next()
+                {
+                    if( next >= end ) throw new NoSuchElementException();
+
+                    final Json j = new Node( null, next );
+                    next = skip( next );
+                    return j;
+                }
+            };
+        }
+
+        private int[] elements()
+        {
+            if( null == elements )
+            {
+                int[] list = new int[Math.min( count( start ), end - start )];
+                int   n    = 0;
+
+                for( int i = start + 1; i < end; i = skip( i ) )
+                {
+                    if( n == list.length ) list = Arrays.copyOf( list, 2 * n + 1 );
+                    list[n++] = i;
+                }
+
+                elements = n == list.length ? list : Arrays.copyOf( list, n );
+            }
+
+            return elements;
+        }
+    }
+
+
+    /**
+     * The members of an object on the tape.  Lookups compare the UTF-8 bytes
+     * of the keys in place; as in Json.parse(), the last of any duplicate
+     * keys wins.
+     */
+    private final class ObjectView extends AbstractMap< String, Json >
+    {
+        private final int start;
+        private final int end;
+
+        private volatile Map< String, Integer > members; // NOTE - Built on first use, so get() is not a scan.
+
+        ObjectView( final int start )
+        {
+            this.start = start;
+            this.end   = payload( start );
+        }
+
+        @Override
+        public Json get( final Object key )
+        {
+            final int i = find( key );
+            return i < 0 ? null : new Node( (String) key, i );
+        }
+
+        @Override
+        public boolean containsKey( final Object key )
+        {
+            return 0 <= find( key );
+        }
+
+        @Override
+        public Set< Entry< String, Json > > entrySet()
+        {
+            final Map< String, Integer > members = members();
+
+            return new AbstractSet< Entry< String, Json > >()
+            {
+                @Override
+                public int size()
+                {
+                    return members.size();
+                }
+
+                @Override
+                public Iterator< Entry< String, Json > > iterator()
+                {
+                    final Iterator< Entry< String, Integer > > it = members.entrySet().iterator();
+
+                    return new Iterator< Entry< String, Json > >()
+                    {
+                        @Override
+                        public boolean hasNext()
+                        {
+                            return it.hasNext();
+                        }
+
+                        @Override
+                        public Entry< String, Json > next()
+                        {
+                            final Entry< String, Integer > e = it.next();
+                            return new SimpleImmutableEntry<>( e.getKey(), new Node( e.getKey(), e.getValue() ) );
+                        }
+                    };
+                }
+            };
+        }
+
+        /**
+         * @return The tape index of the value for key, or -1.
+         */
+        private int find( final Object key )
+        {
+            if( !(key instanceof String) ) return -1;
+
+            final Integer i = members().get( key );
+            return null == i ? -1 : i;
+        }
+
+        /**
+         * @return Each key, with the tape index of its value; a later duplicate
+         * key replaces an earlier one.
+         */
+        private Map< String, Integer > members()
+        {
+            Map< String, Integer > map = members;
+
+            if( null == map )
+            {
+                map = new LinkedHashMap<>();
+                for( int i = start + 1; i < end; i = skip( i + 1 ) ) map.put( string( i ), i + 1 );
+                members = map;
+            }
+
+            return map;
+        }
+    }
+}
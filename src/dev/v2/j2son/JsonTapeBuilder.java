@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2013-2025 - Troy Wu
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.v2.j2son;
+
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static dev.v2.j2son.JsonTape.*;
+
+
+/**
+ * The JsonHandler behind Json.parseTape(), which appends the events to the
+ * primitive arrays of a JsonTape.
+ */
+final class JsonTapeBuilder implements JsonHandler
+{
+    private long[] tape    = new long[1024];
+    private byte[] strings = new byte[4096];
+    private long[] numbers = new long[256];
+
+    private int tapeSize    = 0;
+    private int stringsSize = 0;
+    private int numbersSize = 0;
+
+    // NOTE - Open containers: where each one starts on the tape, and its element (or member) count.
+    private int[] starts = new int[32];
+    private int[] counts = new int[32];
+    private int   depth  = 0;
+
+
+    /**
+     * @return The tape, once parsing is complete; its arrays are trimmed to
+     * size, so it holds no growth slack.
+     */
+    JsonTape tape()
+    {
+        return new JsonTape( Arrays.copyOf( tape, tapeSize ), Arrays.copyOf( strings, stringsSize ), Arrays.copyOf( numbers, numbersSize ) );
+    }
+
+
+    @Override
+    public void startObject()
+    {
+        open( START_OBJECT );
+    }
+
+
+    @Override
+    public void key( final String key )
+    {
+        ++counts[depth - 1];
+        appendString( key );
+    }
+
+
+    @Override
+    public void endObject()
+    {
+        close( END_OBJECT );
+    }
+
+
+    @Override
+    public void startArray()
+    {
+        open( START_ARRAY );
+    }
+
+
+    @Override
+    public void endArray()
+    {
+        close( END_ARRAY );
+    }
+
+
+    @Override
+    public void longValue( final long value )
+    {
+        element();
+        append( LONG, appendNumber( value ) );
+    }
+
+
+    @Override
+    public void doubleValue( final double value )
+    {
+        element();
+        append( DOUBLE, appendNumber( Double.doubleToRawLongBits( value ) ) );
+    }
+
+
+    @Override
+    public void stringValue( final String value )
+    {
+        element();
+        appendString( value );
+    }
+
+
+    @Override
+    public void booleanValue( final boolean value )
+    {
+        element();
+        append( value ? TRUE : FALSE, 0 );
+    }
+
+
+    @Override
+    public void nullValue()
+    {
+        element();
+        append( NULL, 0 );
+    }
+
+
+    private void open( final int tag )
+    {
+        element();
+
+        if( depth == starts.length )
+        {
+            starts = Arrays.copyOf( starts, 2 * depth );
+            counts = Arrays.copyOf( counts, 2 * depth );
+        }
+
+        starts[depth] = tapeSize;
+        counts[depth] = 0;
+        ++depth;
+
+        append( tag, 0 ); // NOTE - Filled in by close().
+    }
+
+
+    private void close( final int tag )
+    {
+        --depth;
+
+        final int start = starts[depth];
+        final int count = Math.min( counts[depth], MAX_COUNT );
+
+        tape[start] = ((long) tag( start ) << TAG_SHIFT) | ((long) count << COUNT_SHIFT) | tapeSize;
+
+        append( tag, start );
+    }
+
+
+    /**
+     * Counts a value appearing in an array.
+     */
+    private void element()
+    {
+        if( 0 < depth && START_ARRAY == tag( starts[depth - 1] ) ) ++counts[depth - 1];
+    }
+
+
+    private int tag( final int index )
+    {
+        return (int) (tape[index] >>> TAG_SHIFT);
+    }
+
+
+    private void append( final int tag, final long payload )
+    {
+        if( tapeSize == tape.length ) tape = Arrays.copyOf( tape, 2 * tapeSize );
+
+        tape[tapeSize++] = ((long) tag << TAG_SHIFT) | payload;
+    }
+
+
+    private int appendNumber( final long bits )
+    {
+        if( numbersSize == numbers.length ) numbers = Arrays.copyOf( numbers, 2 * numbersSize );
+
+        numbers[numbersSize] = bits;
+        return numbersSize++;
+    }
+
+
+    /**
+     * Appends a string (a value or a key) as its UTF-8 bytes, after a 4-byte
+     * length.
+     */
+    private void appendString( final String s )
+    {
+        final byte[] bytes = s.getBytes( StandardCharsets.UTF_8 );
+        final int    n     = bytes.length;
+
+        if( stringsSize + 4 + n > strings.length ) strings = Arrays.copyOf( strings, Math.max( stringsSize + 4 + n, 2 * strings.length ) );
+
+        strings[stringsSize]     = (byte) (n >>> 24);
+        strings[stringsSize + 1] = (byte) (n >>> 16);
+        strings[stringsSize + 2] = (byte) (n >>> 8);
+        strings[stringsSize + 3] = (byte) n;
+        System.arraycopy( bytes, 0, strings, stringsSize + 4, n );
+
+        append( STRING, stringsSize );
+        stringsSize += 4 + n;
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2013-2025 - Troy Wu
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.v2.j2son;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * The JsonHandler behind Json.parse(), which assembles the events into an
+ * in-memory tree of Json objects.
+ * <p>
+ * Numbers are held unboxed, and an array whose elements turn out to be all
+ * integers (or all floating-point numbers) is packed into a long[] (or
+ * double[]).  An object's members are kept in document order, in a
+ * JsonObjectMap sized to their count; objects with the same keys share
+ * one JsonShape.
+ */
+final class JsonTreeBuilder implements JsonHandler
+{
+    /**
+     * A container under construction, and the key it will be stored under.
+     */
+    private static final class Frame
+    {
+        final String        key;
+        final JsonObjectMap map; // NOTE - null for an array.
+
+        JsonShape lastShape; // Of the last object put in this container; the next one will likely match it.
+
+        // An array's elements: packed while they're all longs (or all doubles), listed once they're not.
+        List< Json > list;
+        long[]       longs;
+        double[]     doubles;
+        int          size;
+
+        Frame( final String key, final JsonObjectMap map )
+        {
+            this.key = key;
+            this.map = map;
+        }
+
+        void addLong( final long value )
+        {
+            if( null == longs ) longs = new long[16];
+            else if( size == longs.length ) longs = Arrays.copyOf( longs, 2 * size );
+
+            longs[size++] = value;
+        }
+
+        void addDouble( final double value )
+        {
+            if( null == doubles ) doubles = new double[16];
+            else if( size == doubles.length ) doubles = Arrays.copyOf( doubles, 2 * size );
+
+            doubles[size++] = value;
+        }
+
+        /**
+         * Switches from packed to listed elements.
+         */
+        void unpack()
+        {
+            list = new ArrayList<>( Math.max( 10, size + size / 2 ) );
+
+            for( int i = 0; i < size; ++i )
+            {
+                list.add( null != longs ? new JsonLong( null, longs[i] ) : new JsonDouble( null, doubles[i] ) );
+            }
+
+            longs   = null;
+            doubles = null;
+        }
+
+        Json toArray()
+        {
+            if( null != longs ) return new JsonLongArray( key, Arrays.copyOf( longs, size ) );
+            if( null != doubles ) return new JsonDoubleArray( key, Arrays.copyOf( doubles, size ) );
+
+            return new Json( key, null != list ? list : new ArrayList<>(), Json.JSON_ARRAY );
+        }
+    }
+
+
+    private final List< Frame >   stack  = new ArrayList<>();
+    private final JsonShape.Cache shapes = new JsonShape.Cache();
+
+    private String key;
+    private Json   root;
+
+
+    /**
+     * @return The top-level value, once parsing is complete.
+     */
+    Json root()
+    {
+        return root;
+    }
+
+
+    @Override
+    public void startObject()
+    {
+        final JsonShape predicted = stack.isEmpty() ? null : stack.get( stack.size() - 1 ).lastShape;
+
+        stack.add( new Frame( memberKey(), new JsonObjectMap( predicted ) ) );
+    }
+
+
+    @Override
+    public void key( final String key )
+    {
+        this.key = key;
+    }
+
+
+    @Override
+    public void endObject()
+    {
+        final Frame frame = stack.remove( stack.size() - 1 );
+
+        frame.map.seal( shapes );
+        if( !stack.isEmpty() ) stack.get( stack.size() - 1 ).lastShape = frame.map.shape();
+
+        key = frame.key;
+        add( new Json( frame.key, frame.map, Json.JSON_OBJECT ) );
+    }
+
+
+    @Override
+    public void startArray()
+    {
+        stack.add( new Frame( memberKey(), null ) );
+    }
+
+
+    @Override
+    public void endArray()
+    {
+        final Frame frame = stack.remove( stack.size() - 1 );
+
+        key = frame.key;
+        add( frame.toArray() );
+    }
+
+
+    @Override
+    public void longValue( final long value )
+    {
+        final Frame frame = packing();
+
+        if( null != frame && null == frame.doubles ) frame.addLong( value );
+        else add( new JsonLong( memberKey(), value ) );
+    }
+
+
+    @Override
+    public void doubleValue( final double value )
+    {
+        final Frame frame = packing();
+
+        if( null != frame && null == frame.longs ) frame.addDouble( value );
+        else add( new JsonDouble( memberKey(), value ) );
+    }
+
+
+    /**
+     * Adds the number just parsed, as its text; see Json.parseExact().
+     */
+    void numberValue( final JsonInput in )
+    {
+        add( in.exactNumber( memberKey() ) );
+    }
+
+
+    @Override
+    public void stringValue( final String value )
+    {
+        add( new Json( memberKey(), value, Json.JSON_STRING ) );
+    }
+
+
+    @Override
+    public void booleanValue( final boolean value )
+    {
+        add( new Json( memberKey(), value, Json.JSON_BOOLEAN ) );
+    }
+
+
+    @Override
+    public void nullValue()
+    {
+        add( new Json( memberKey(), (Object) null, Json.JSON_NULL ) );
+    }
+
+
+    /**
+     * @return The innermost container, if it is an array whose elements are
+     * still packed (or which has none yet).
+     */
+    private Frame packing()
+    {
+        if( stack.isEmpty() ) return null;
+
+        final Frame frame = stack.get( stack.size() - 1 );
+
+        return null == frame.map && null == frame.list ? frame : null;
+    }
+
+
+    /**
+     * @return The key for a value about to be added; null unless it is an
+     * object member.
+     */
+    private String memberKey()
+    {
+        return stack.isEmpty() || null == stack.get( stack.size() - 1 ).map ? null : key;
+    }
+
+
+    /**
+     * Puts a completed value in place.
+     */
+    private void add( final Json j )
+    {
+        if( stack.isEmpty() )
+        {
+            root = j;
+            return;
+        }
+
+        final Frame frame = stack.get( stack.size() - 1 );
+
+        if( null != frame.map )
+        {
+            frame.map.add( key, j );
+            return;
+        }
+
+        if( null == frame.list ) frame.unpack();
+        frame.list.add( j );
+    }
+}
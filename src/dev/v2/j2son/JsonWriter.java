@@ -0,0 +1,869 @@
+/*
+ * Copyright (c) 2013-2025 - Troy Wu
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.v2.j2son;
+
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+
+
+/**
+ * Writes JSON text as it goes, through one fixed-size buffer, so writing a
+ * tree takes memory for the buffer alone, however big or deep the tree.
+ * Strings (and keys) are escaped as needed.
+ * <p>
+ * Written to an OutputStream or WritableByteChannel, the JSON is encoded to
+ * UTF-8 straight into a pooled byte buffer, with no String or char[] in
+ * between; keys are encoded once, and then copied from a cache.  close()
+ * gives the buffer back to the pool.
+ * <p>
+ * Besides whole trees (write()), a writer takes tokens one at a time, as a
+ * JsonHandler; e.g., Json.parse( input, writer ) copies JSON without building
+ * a tree.  Half of a surrogate pair, on its own, is written as an escape.
+ * Output errors from the token methods are thrown as UncheckedIOException.
+ * Call flush() (or close()) once the last token is written.
+ * <p>
+ * Doubles are written in the fewest digits which read back the same.  A
+ * canonical() writer writes RFC 8785 (JCS) JSON instead, whose bytes are the
+ * same for the same data, so they can be hashed or signed: keys sorted,
+ * numbers as ECMAScript writes them, and no spaces.  Since keys can only be
+ * sorted with the whole object at hand, a canonical writer takes objects
+ * only within trees (write()), and not as tokens.
+ *
+ * @see Json#writeTo(Appendable)
+ */
+public final class JsonWriter implements JsonHandler, Flushable, Closeable
+{
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final byte[] TRUE  = Json.JSON_LIT_TRUE.getBytes( StandardCharsets.US_ASCII );
+    private static final byte[] FALSE = Json.JSON_LIT_FALSE.getBytes( StandardCharsets.US_ASCII );
+    private static final byte[] NULL  = Json.JSON_LIT_NULL.getBytes( StandardCharsets.US_ASCII );
+
+    // NOTE - Buffers for writing bytes, kept for the next writer; any beyond these are left to the GC.
+    private static final ArrayBlockingQueue< ByteBuffer > POOL = new ArrayBlockingQueue<>( 32 );
+
+    private static final long MAX_SAFE_INTEGER = (1L << 53) - 1; // NOTE - Larger integers are rounded to doubles, in canonical JSON.
+
+    private static final int KEY_CACHE_SIZE = 256;
+    private static final int MAX_KEY_LENGTH = 64;
+
+    // Where the output goes: characters to out, or bytes to channel or stream.
+    private final Appendable          out;
+    private final WritableByteChannel channel;
+    private final OutputStream        stream;
+
+    private final String colon; // Between a key and its value.
+
+    private final char[] chars; // NOTE - Exactly one of chars and bytes, depending on the output.
+    private ByteBuffer   buffer;
+    private byte[]       bytes;
+    private int          len;
+
+    // Keys already encoded (when writing bytes); mostly found by identity, as the parser and the shapes share key Strings.
+    private String[] keys;
+    private byte[][] encodedKeys;
+
+    // For each open container: whether it already has a member (or element), so the next one needs a comma.
+    private boolean[] hasMembers = new boolean[16];
+    private int       depth;
+    private boolean   isAfterKey;
+
+    private boolean      isCanonical;
+    private DoubleFormat doubles;
+
+
+    public JsonWriter( final Appendable out )
+    {
+        this( out, ":" );
+    }
+
+
+    /**
+     * Writes UTF-8 encoded JSON.
+     */
+    public JsonWriter( final OutputStream out )
+    {
+        this( null, Objects.requireNonNull( out ) );
+    }
+
+
+    /**
+     * Writes UTF-8 encoded JSON; e.g., to a file or a socket.
+     */
+    public JsonWriter( final WritableByteChannel out )
+    {
+        this( Objects.requireNonNull( out ), null );
+    }
+
+
+    /**
+     * @param colon What to write between a key and its value; asJSON() has
+     *              its own spacing.
+     */
+    JsonWriter( final Appendable out, final String colon )
+    {
+        this.out     = Objects.requireNonNull( out );
+        this.channel = null;
+        this.stream  = null;
+        this.colon   = colon;
+        this.chars   = new char[BUFFER_SIZE / 2];
+    }
+
+
+    private JsonWriter( final WritableByteChannel channel, final OutputStream stream )
+    {
+        this.out     = null;
+        this.channel = channel;
+        this.stream  = stream;
+        this.colon   = ":";
+        this.chars   = null;
+
+        final ByteBuffer pooled = POOL.poll();
+
+        this.buffer = null != pooled ? pooled : ByteBuffer.allocate( BUFFER_SIZE );
+        this.bytes  = buffer.array();
+    }
+
+
+    /**
+     * Makes this writer write canonical JSON (RFC 8785), from the next token
+     * on; NaN and infinities, which that has no form for, then throw
+     * IllegalArgumentException, and key() throws IllegalStateException (see
+     * above).  Half of a surrogate pair is escaped, as usual, though it is
+     * not allowed there either.
+     *
+     * @return This writer.
+     */
+    public JsonWriter canonical()
+    {
+        isCanonical = true;
+        return this;
+    }
+
+
+    /**
+     * Writes the value of json (but not its key), and passes it all on to the
+     * output.
+     */
+    public void write( final Json json ) throws IOException
+    {
+        try
+        {
+            value( json );
+            drain();
+            if( null != stream ) stream.flush();
+        }
+        catch( UncheckedIOException uioex )
+        {
+            throw uioex.getCause();
+        }
+    }
+
+
+    /**
+     * Passes everything written so far on to the output, and flushes that
+     * too, if it can be.
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        try
+        {
+            drain();
+        }
+        catch( UncheckedIOException uioex )
+        {
+            throw uioex.getCause();
+        }
+
+        if( out instanceof Flushable ) ((Flushable) out).flush();
+        else if( null != stream ) stream.flush();
+    }
+
+
+    /**
+     * Flushes, and gives back the buffer for writing bytes to the pool.
+     * The output itself is not closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        flush();
+
+        if( null != buffer )
+        {
+            buffer.clear();
+            POOL.offer( buffer );
+
+            buffer = null;
+            bytes  = null;
+        }
+    }
+
+
+    @Override
+    public void startObject()
+    {
+        beforeValue();
+        put( '{' );
+        push();
+    }
+
+
+    /**
+     * @throws IllegalStateException On a canonical() writer, which cannot
+     *                               sort members it is given one at a time;
+     *                               write whole trees with write() instead.
+     */
+    @Override
+    public void key( final String key )
+    {
+        if( isCanonical ) throw new IllegalStateException( "A canonical JsonWriter only writes objects whole, with write()." );
+
+        member( key );
+    }
+
+
+    private void member( final String key )
+    {
+        beforeValue();
+
+        if( null != bytes && key.length() <= MAX_KEY_LENGTH ) encodedKey( key );
+        else string( key );
+
+        put( colon );
+        isAfterKey = true;
+    }
+
+
+    @Override
+    public void endObject()
+    {
+        --depth;
+        put( '}' );
+    }
+
+
+    @Override
+    public void startArray()
+    {
+        beforeValue();
+        put( '[' );
+        push();
+    }
+
+
+    @Override
+    public void endArray()
+    {
+        --depth;
+        put( ']' );
+    }
+
+
+    @Override
+    public void longValue( final long value )
+    {
+        if( isCanonical && (value > MAX_SAFE_INTEGER || value < -MAX_SAFE_INTEGER) )
+        {
+            doubleValue( value );
+            return;
+        }
+
+        beforeValue();
+        number( value );
+    }
+
+
+    /**
+     * JSON has no infinities; they are written as numbers too big for a
+     * double, which read back as infinite.  NaN is written as null.
+     */
+    @Override
+    public void doubleValue( final double value )
+    {
+        final boolean isFinite = !Double.isNaN( value ) && !Double.isInfinite( value );
+
+        if( isCanonical && !isFinite ) throw new IllegalArgumentException( "No canonical JSON for " + value );
+
+        beforeValue();
+
+        if( Double.isNaN( value ) ) put( Json.JSON_LIT_NULL );
+        else if( Double.isInfinite( value ) ) put( value > 0 ? "1e999" : "-1e999" );
+        else number( value );
+    }
+
+
+    @Override
+    public void stringValue( final String value )
+    {
+        beforeValue();
+        string( value );
+    }
+
+
+    @Override
+    public void booleanValue( final boolean value )
+    {
+        beforeValue();
+
+        if( null != bytes ) put( value ? TRUE : FALSE );
+        else put( value ? Json.JSON_LIT_TRUE : Json.JSON_LIT_FALSE );
+    }
+
+
+    @Override
+    public void nullValue()
+    {
+        beforeValue();
+
+        if( null != bytes ) put( NULL );
+        else put( Json.JSON_LIT_NULL );
+    }
+
+
+    /**
+     * Writes a node, or any of the plain values (String, Number, Boolean,
+     * Map, Collection or null) which a node may hold.
+     */
+    void value( final Object o )
+    {
+        if( o instanceof Json )
+        {
+            node( (Json) o );
+        }
+        else if( null == o )
+        {
+            nullValue();
+        }
+        else if( o instanceof String )
+        {
+            stringValue( (String) o );
+        }
+        else if( o instanceof Long || o instanceof Integer || o instanceof Short || o instanceof Byte )
+        {
+            longValue( ((Number) o).longValue() );
+        }
+        else if( o instanceof Double || isCanonical && o instanceof Number )
+        {
+            doubleValue( ((Number) o).doubleValue() );
+        }
+        else if( o instanceof Number )
+        {
+            beforeValue();
+            put( o.toString() );
+        }
+        else if( o instanceof Boolean )
+        {
+            booleanValue( (Boolean) o );
+        }
+        else if( o instanceof JsonObjectMap )
+        {
+            // NOTE - By index, rather than through entries made one per member.
+            final JsonObjectMap map = (JsonObjectMap) o;
+
+            startObject();
+            if( isCanonical )
+            {
+                // NOTE - RFC 8785 sorts keys by their UTF-16 code units, which is just String's order.
+                final String[] keys = new String[map.size()];
+
+                for( int i = 0; i < keys.length; ++i ) keys[i] = map.keyAt( i );
+                Arrays.sort( keys );
+
+                for( final String key : keys )
+                {
+                    member( key );
+                    value( map.get( key ) );
+                }
+            }
+            else
+            {
+                for( int i = 0; i < map.size(); ++i )
+                {
+                    member( map.keyAt( i ) );
+                    value( map.valueAt( i ) );
+                }
+            }
+            endObject();
+        }
+        else if( o instanceof Map )
+        {
+            final Map< ?, ? > map = (Map< ?, ? >) o;
+
+            startObject();
+            if( isCanonical )
+            {
+                final TreeMap< String, Object > sorted = new TreeMap<>();
+
+                for( final Map.Entry< ?, ? > e : map.entrySet() ) sorted.put( String.valueOf( e.getKey() ), e.getValue() );
+                for( final Map.Entry< String, Object > e : sorted.entrySet() )
+                {
+                    member( e.getKey() );
+                    value( e.getValue() );
+                }
+            }
+            else
+            {
+                for( final Map.Entry< ?, ? > e : map.entrySet() )
+                {
+                    member( String.valueOf( e.getKey() ) );
+                    value( e.getValue() );
+                }
+            }
+            endObject();
+        }
+        else if( o instanceof Collection )
+        {
+            startArray();
+            for( final Object element : (Collection< ? >) o ) value( element );
+            endArray();
+        }
+        else
+        {
+            stringValue( o.toString() );
+        }
+    }
+
+
+    private void node( final Json json )
+    {
+        switch( json.getType() )
+        {
+            case Json.JSON_LONG:
+                // NOTE - An exact number is written just as it was read; canonically, by its value.
+                if( json instanceof JsonNumber && isCanonical )
+                {
+                    value( json.getValue() );
+                }
+                else if( json instanceof JsonNumber )
+                {
+                    beforeValue();
+                    put( json.toString() );
+                }
+                else
+                {
+                    longValue( json.getLong() );
+                }
+                return;
+
+            case Json.JSON_DOUBLE:
+                if( json instanceof JsonNumber && isCanonical )
+                {
+                    value( json.getValue() );
+                }
+                else if( json instanceof JsonNumber )
+                {
+                    beforeValue();
+                    put( json.toString() );
+                }
+                else
+                {
+                    doubleValue( json.getDouble() );
+                }
+                return;
+
+            case Json.JSON_ARRAY:
+                if( json instanceof JsonLongArray )
+                {
+                    final long[] values = ((JsonLongArray) json).values();
+
+                    if( null != values )
+                    {
+                        startArray();
+                        for( final long v : values ) longValue( v );
+                        endArray();
+                        return;
+                    }
+                }
+                if( json instanceof JsonDoubleArray )
+                {
+                    final double[] values = ((JsonDoubleArray) json).values();
+
+                    if( null != values )
+                    {
+                        startArray();
+                        for( final double v : values ) doubleValue( v );
+                        endArray();
+                        return;
+                    }
+                }
+                break;
+
+            default:
+                break;
+        }
+
+        final Object val = json.getValue();
+
+        // NOTE - Members are written under the keys of their map, not their own.
+        if( val instanceof List || val instanceof Map ) value( val );
+        else if( val instanceof Json ) node( (Json) val );
+        else value( val );
+    }
+
+
+    private void beforeValue()
+    {
+        if( isAfterKey )
+        {
+            isAfterKey = false;
+            return;
+        }
+
+        if( 0 < depth )
+        {
+            if( hasMembers[depth - 1] ) put( ',' );
+            else hasMembers[depth - 1] = true;
+        }
+    }
+
+
+    private void push()
+    {
+        if( depth == hasMembers.length ) hasMembers = Arrays.copyOf( hasMembers, 2 * depth );
+
+        hasMembers[depth++] = false;
+    }
+
+
+    private void string( final String s )
+    {
+        put( '"' );
+
+        final int n     = s.length();
+        int       start = 0;
+
+        for( int i = 0; i < n; ++i )
+        {
+            final char c = s.charAt( i );
+
+            if( c >= 0x20 && '"' != c && '\\' != c )
+            {
+                if( !Character.isSurrogate( c ) ) continue;
+
+                // NOTE - A pair is fine as it is; half of one could not be encoded, so it is escaped.
+                if( Character.isHighSurrogate( c ) && i + 1 < n && Character.isLowSurrogate( s.charAt( i + 1 ) ) )
+                {
+                    ++i;
+                    continue;
+                }
+            }
+
+            put( s, start, i );
+            escape( c );
+            start = i + 1;
+        }
+
+        put( s, start, n );
+        put( '"' );
+    }
+
+
+    private void escape( final char c )
+    {
+        switch( c )
+        {
+            case '"':
+                put( "\\\"" );
+                break;
+            case '\\':
+                put( "\\\\" );
+                break;
+            case '\b':
+                put( "\\b" );
+                break;
+            case '\f':
+                put( "\\f" );
+                break;
+            case '\n':
+                put( "\\n" );
+                break;
+            case '\r':
+                put( "\\r" );
+                break;
+            case '\t':
+                put( "\\t" );
+                break;
+
+            default:
+                put( "\\u" );
+                put( HEX_DIGITS[c >> 12] );
+                put( HEX_DIGITS[(c >> 8) & 0xF] );
+                put( HEX_DIGITS[(c >> 4) & 0xF] );
+                put( HEX_DIGITS[c & 0xF] );
+                break;
+        }
+    }
+
+
+    /**
+     * Writes a key from the cache of encoded keys, encoding (and caching) it
+     * first if it is not there.
+     */
+    private void encodedKey( final String key )
+    {
+        if( null == keys )
+        {
+            keys        = new String[KEY_CACHE_SIZE];
+            encodedKeys = new byte[KEY_CACHE_SIZE][];
+        }
+
+        final int slot = (key.hashCode() * 0x9E3779B1 >>> 24) & (KEY_CACHE_SIZE - 1);
+
+        if( key != keys[slot] && !key.equals( keys[slot] ) )
+        {
+            // NOTE - Make room for the longest escaped form, so the key is encoded all in one piece.
+            if( len + 6 * MAX_KEY_LENGTH + 2 > bytes.length ) drain();
+
+            final int start = len;
+            string( key );
+
+            keys[slot]        = key;
+            encodedKeys[slot] = Arrays.copyOfRange( bytes, start, len );
+            return;
+        }
+
+        put( encodedKeys[slot] );
+    }
+
+
+    /**
+     * Writes the digits of value straight into the buffer.
+     */
+    private void number( long value )
+    {
+        if( Long.MIN_VALUE == value )
+        {
+            put( Long.toString( value ) );
+            return;
+        }
+
+        if( len + 20 > capacity() ) drain();
+
+        if( value < 0 )
+        {
+            set( len++, '-' );
+            value = -value;
+        }
+
+        int digits = 1;
+        for( long v = value; v >= 10; v /= 10 ) ++digits;
+
+        for( int i = len + digits - 1; i >= len; --i )
+        {
+            set( i, (char) ('0' + value % 10) );
+            value /= 10;
+        }
+
+        len += digits;
+    }
+
+
+    /**
+     * Writes the shortest digits of a finite double straight into the buffer.
+     */
+    private void number( final double value )
+    {
+        if( null == doubles ) doubles = new DoubleFormat();
+
+        final int n = doubles.format( value, isCanonical );
+
+        if( len + n > capacity() ) drain();
+
+        for( int i = 0; i < n; ++i ) set( len++, doubles.chars[i] );
+    }
+
+
+    /**
+     * Puts an ASCII character at buffer index i.
+     */
+    private void set( final int i, final char c )
+    {
+        if( null != bytes ) bytes[i] = (byte) c;
+        else chars[i] = c;
+    }
+
+
+    private int capacity()
+    {
+        return null != bytes ? bytes.length : chars.length;
+    }
+
+
+    private void put( final char c )
+    {
+        if( len == capacity() ) drain();
+
+        set( len++, c );
+    }
+
+
+    private void put( final byte[] b )
+    {
+        if( len + b.length > bytes.length ) drain();
+
+        System.arraycopy( b, 0, bytes, len, b.length );
+        len += b.length;
+    }
+
+
+    private void put( final String s )
+    {
+        put( s, 0, s.length() );
+    }
+
+
+    private void put( final String s, int from, final int to )
+    {
+        if( null != bytes )
+        {
+            encode( s, from, to );
+            return;
+        }
+
+        while( from < to )
+        {
+            if( len == chars.length ) drain();
+
+            final int n = Math.min( to - from, chars.length - len );
+
+            s.getChars( from, from + n, chars, len );
+            len  += n;
+            from += n;
+        }
+    }
+
+
+    /**
+     * Encodes s[from, to) as UTF-8 into the buffer.  Surrogates only come in
+     * pairs here; string() escapes any on their own.
+     */
+    private void encode( final String s, final int from, final int to )
+    {
+        for( int i = from; i < to; ++i )
+        {
+            if( len + 4 > bytes.length ) drain();
+
+            final char c = s.charAt( i );
+
+            if( c < 0x80 )
+            {
+                bytes[len++] = (byte) c;
+
+                // NOTE - Runs of ASCII are the common case; keep copying while there's room.
+                final int end = Math.min( to, i + 1 + (bytes.length - len) );
+                for( char d; i + 1 < end && (d = s.charAt( i + 1 )) < 0x80; ++i ) bytes[len++] = (byte) d;
+            }
+            else if( c < 0x800 )
+            {
+                bytes[len++] = (byte) (0xC0 | (c >> 6));
+                bytes[len++] = (byte) (0x80 | (c & 0x3F));
+            }
+            else if( Character.isHighSurrogate( c ) && i + 1 < to )
+            {
+                final int cp = Character.toCodePoint( c, s.charAt( ++i ) );
+
+                bytes[len++] = (byte) (0xF0 | (cp >> 18));
+                bytes[len++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                bytes[len++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                bytes[len++] = (byte) (0x80 | (cp & 0x3F));
+            }
+            else
+            {
+                bytes[len++] = (byte) (0xE0 | (c >> 12));
+                bytes[len++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[len++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+
+    /**
+     * Empties the buffer into the output.
+     */
+    void drain()
+    {
+        if( 0 == len ) return;
+
+        if( null != bytes )
+        {
+            buffer.clear().limit( len );
+            write( buffer );
+            len = 0;
+            return;
+        }
+
+        try
+        {
+            if( out instanceof Writer ) ((Writer) out).write( chars, 0, len );
+            else if( out instanceof StringBuilder ) ((StringBuilder) out).append( chars, 0, len );
+            else out.append( CharBuffer.wrap( chars, 0, len ) );
+        }
+        catch( IOException ioex )
+        {
+            throw new UncheckedIOException( ioex );
+        }
+
+        len = 0;
+    }
+
+
+    private void write( final ByteBuffer b )
+    {
+        try
+        {
+            if( null != stream )
+            {
+                stream.write( b.array(), b.arrayOffset() + b.position(), b.remaining() );
+            }
+            else
+            {
+                while( b.hasRemaining() ) channel.write( b );
+            }
+        }
+        catch( IOException ioex )
+        {
+            throw new UncheckedIOException( ioex );
+        }
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2013-2025 - Troy Wu
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.v2.j2son;
+
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * A container or string which is only parsed once it is used.
+ * <p>
+ * Until then, it is just the range of input bytes holding it; its extent
+ * was found by a quick skip, which matches brackets and double-quotes but
+ * checks nothing else.  Materializing an object or array parses just its
+ * own members (or elements): bare literals are parsed on the spot, while
+ * nested containers and strings become more LazyJson.
+ * <p>
+ * Errors found when materializing are thrown as UncheckedJsonException.
+ *
+ * @see Json#parseLazy(byte[], int, int)
+ */
+final class LazyJson extends Json
+{
+    private final byte[] buf;
+    private final int    start; // The opening '{', '[' or '"'.
+    private final int    end;   // Just past the closing one.
+
+    private volatile Object value;
+
+
+    private LazyJson( final String key, final int type, final byte[] buf, final int start, final int end )
+    {
+        super( key, type );
+
+        this.buf   = buf;
+        this.start = start;
+        this.end   = end;
+    }
+
+
+    /**
+     * Reads the top-level value from the input.  If it is an object or
+     * array, its members (or elements) are found right away, but each one
+     * is only skipped.
+     */
+    static Json read( final byte[] buf, final int offset, final int length ) throws IOException, InvalidJsonException
+    {
+        return read( buf, offset, length, 1 );
+    }
+
+
+    /**
+     * Reads the top-level value from the input, finding the members (or
+     * elements) of the objects and arrays in its first depth levels right
+     * away.  Any deeper ones are only skipped.
+     */
+    static Json read( final byte[] buf, final int offset, final int length, final int depth ) throws IOException, InvalidJsonException
+    {
+        if( depth < 0 ) throw new IllegalArgumentException( "Bad depth: " + depth );
+
+        final JsonInput in = new JsonInput( buf, offset, length );
+        final Json      j  = value( in, null, next( in ), depth );
+
+        // NOTE - Whitespace at the end of the JSON is valid.
+        in.skipWhitespace( in.read() );
+
+        return j;
+    }
+
+
+    @Override
+    public Object getValue()
+    {
+        Object v = value;
+
+        if( null == v )
+        {
+            try
+            {
+                v = value = materialize();
+            }
+            catch( InvalidJsonException jex )
+            {
+                throw new UncheckedJsonException( jex );
+            }
+            catch( IOException ioex )
+            {
+                throw new UncheckedIOException( ioex ); // NOTE - Cannot happen; the input is in memory.
+            }
+        }
+
+        return v;
+    }
+
+
+    private Object materialize() throws IOException, InvalidJsonException
+    {
+        final JsonInput in = new JsonInput( buf, start + 1, end - start - 1 );
+
+        switch( type )
+        {
+            case JSON_OBJECT:
+                return members( in, 0 );
+
+            case JSON_ARRAY:
+                return elements( in, 0 );
+
+            default:
+                return in.readString();
+        }
+    }
+
+
+    private static Map< String, Json > members( final JsonInput in, final int depth ) throws IOException, InvalidJsonException
+    {
+        final JsonObjectMap map = new JsonObjectMap( null );
+
+        int c = next( in );
+        if( '}' == c ) return map.seal( null ); // Empty object.
+
+        while( true )
+        {
+            if( '"' != c ) throw new InvalidJsonException( "No key (no st arting double-quote) for object member." );
+
+            final String key = in.readKey();
+
+            if( ':' != next( in ) ) throw new InvalidJsonException( "No ':' for object member." );
+
+            map.add( key, value( in, key, next( in ), depth ) );
+
+            c = next( in );
+
+            if( '}' == c ) break; // End of the object.
+
+            if( ',' != c ) throw new InvalidJsonException( "Invalid character (not comma or end-curly) in map." );
+
+            c = next( in );
+        }
+
+        return map.seal( null );
+    }
+
+
+    private static List< Json > elements( final JsonInput in, final int depth ) throws IOException, InvalidJsonException
+    {
+        final List< Json > list = new ArrayList<>();
+
+        int c = next( in );
+        if( ']' == c ) return list; // Empty array.
+
+        while( true )
+        {
+            list.add( value( in, null, c, depth ) );
+
+            c = next( in );
+
+            if( ']' == c ) break; // End of the array.
+
+            if( ',' != c ) throw new InvalidJsonException( "Invalid character (not comma or end-bracket) in array." );
+
+            c = next( in );
+        }
+
+        return list;
+    }
+
+
+    /**
+     * @return A LazyJson for a container or string starting with c (already
+     * read), which is skipped, unless it is a container less than depth
+     * levels down; otherwise, the parsed literal.
+     */
+    private static Json value( final JsonInput in, final String key, final int c, final int depth ) throws IOException, InvalidJsonException
+    {
+        final int type;
+
+        switch( c )
+        {
+            case '{':
+                type = JSON_OBJECT;
+                break;
+
+            case '[':
+                type = JSON_ARRAY;
+                break;
+
+            case '"':
+                type = JSON_STRING;
+                break;
+
+            default:
+                return literal( in, key, c );
+        }
+
+        final int from = in.position() - 1;
+
+        if( 0 < depth && JSON_STRING != type )
+        {
+            final Object value = JSON_OBJECT == type ? members( in, depth - 1 ) : elements( in, depth - 1 );
+
+            final LazyJson j = new LazyJson( key, type, in.buffer(), from, in.position() );
+            j.value = value;
+            return j;
+        }
+
+        in.skipValue( c );
+
+        return new LazyJson( key, type, in.buffer(), from, in.position() );
+    }
+
+
+    private static Json literal( final JsonInput in, final String key, final int c ) throws IOException, InvalidJsonException
+    {
+        switch( in.parseLiteral( c ) )
+        {
+            case JSON_FALSE:
+                return new Json( key, Boolean.FALSE, JSON_BOOLEAN );
+
+            case JSON_TRUE:
+                return new Json( key, Boolean.TRUE, JSON_BOOLEAN );
+
+            case JSON_NULL:
+                return new Json( key, (Object) null, JSON_NULL );
+
+            case JSON_LONG:
+                return new JsonLong( key, in.longValue() );
+
+            case JSON_DOUBLE:
+                return new JsonDouble( key, in.doubleValue() );
+
+            default:
+                return new JsonLong( key, 0 ); // Number could not be converted.
+        }
+    }
+
+
+    /**
+     * @return The next non-whitespace character.
+     */
+    private static int next( final JsonInput in ) throws IOException, InvalidJsonException
+    {
+        final int c = in.skipWhitespace( in.read() );
+
+        if( -1 == c ) throw new InvalidJsonException( "JSON terminated in whitespace" );
+
+        return c;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2013-2025 - Troy Wu
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.v2.j2son;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Objects;
+
+
+/**
+ * Reads a range of a file through read-only memory mappings.  A single
+ * mapping cannot exceed 2 GB, so the range is mapped one window at a time,
+ * and each window is dropped once it has been consumed.
+ * <p>
+ * Bytes move straight from the page cache into the caller's buffer, with no
+ * read() system calls and no intermediate direct buffer.
+ */
+final class MappedInputStream extends InputStream
+{
+    static final long WINDOW_SIZE = 1L << 30; // 1 GB
+
+    private final FileChannel channel;
+    private final long        end;
+
+    private long             next;   // File offset at which the next window starts.
+    private MappedByteBuffer window; // NOTE - Unmapped by the GC once released.
+
+
+    MappedInputStream( final FileChannel channel, final long start, final long end )
+    {
+        if( start < 0 || start > end ) throw new IndexOutOfBoundsException( "Bad file range [" + start + ", " + end + ")" );
+
+        this.channel = Objects.requireNonNull( channel );
+        this.next    = start;
+        this.end     = end;
+    }
+
+
+    @Override
+    public int read() throws IOException
+    {
+        if( !hasRemaining() ) return -1;
+
+        return window.get() & 0xFF;
+    }
+
+
+    @Override
+    public int read( final byte[] b, final int off, final int len ) throws IOException
+    {
+        Objects.checkFromIndexSize( off, len, b.length );
+
+        if( 0 == len ) return 0;
+        if( !hasRemaining() ) return -1;
+
+        final int n = Math.min( len, window.remaining() );
+        window.get( b, off, n );
+
+        return n;
+    }
+
+
+    @Override
+    public int available()
+    {
+        final long remaining = (null == window ? 0 : window.remaining()) + (end - next);
+        return (int) Math.min( Integer.MAX_VALUE, remaining );
+    }
+
+
+    /**
+     * Maps the next window once the current one is used up.
+     *
+     * @return false at the end of the range.
+     */
+    private boolean hasRemaining() throws IOException
+    {
+        if( null != window && window.hasRemaining() ) return true;
+
+        window = null;
+
+        if( next >= end ) return false;
+
+        final long size = Math.min( WINDOW_SIZE, end - next );
+
+        window = channel.map( FileChannel.MapMode.READ_ONLY, next, size );
+        next += size;
+
+        return true;
+    }
+}
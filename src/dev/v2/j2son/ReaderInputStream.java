@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2013-2025 - Troy Wu
+ *
+ * The MIT License (MIT)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the “Software”), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.v2.j2son;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+
+/**
+ * Presents the characters of a Reader as UTF-8 bytes, encoding them a chunk
+ * at a time, so that JsonParser can read character input without first
+ * collecting it into a String.
+ */
+final class ReaderInputStream extends InputStream
+{
+    private static final int CHUNK_SIZE = 8 * 1024;
+
+    private final Reader         reader;
+    private final CharsetEncoder encoder;
+    private final CharBuffer     chars;
+    private final ByteBuffer     bytes;
+
+    private boolean isEOF     = false;
+    private boolean isFlushed = false;
+
+
+    ReaderInputStream( final Reader reader )
+    {
+        this.reader  = Objects.requireNonNull( reader );
+        this.encoder = StandardCharsets.UTF_8.newEncoder()
+                                             .onMalformedInput( CodingErrorAction.REPLACE )
+                                             .onUnmappableCharacter( CodingErrorAction.REPLACE );
+
+        // NOTE - Both start out empty, in "read" (flipped) mode.
+        this.chars = CharBuffer.allocate( CHUNK_SIZE ).flip();
+        this.bytes = ByteBuffer.allocate( 3 * CHUNK_SIZE ).flip();
+    }
+
+
+    @Override
+    public int read() throws IOException
+    {
+        if( !bytes.hasRemaining() && !encode() ) return -1;
+
+        return bytes.get() & 0xFF;
+    }
+
+
+    @Override
+    public int read( final byte[] b, final int off, final int len ) throws IOException
+    {
+        Objects.checkFromIndexSize( off, len, b.length );
+
+        if( 0 == len ) return 0;
+        if( !bytes.hasRemaining() && !encode() ) return -1;
+
+        final int n = Math.min( len, bytes.remaining() );
+        bytes.get( b, off, n );
+
+        return n;
+    }
+
+
+    @Override
+    public void close() throws IOException
+    {
+        reader.close();
+    }
+
+
+    /**
+     * Encodes the next chunk of characters into the (empty) byte buffer.
+     *
+     * @return false once the reader is exhausted.
+     */
+    private boolean encode() throws IOException
+    {
+        bytes.clear();
+
+        while( 0 == bytes.position() && !isFlushed )
+        {
+            if( !isEOF )
+            {
+                // NOTE - A dangling high surrogate stays behind for the next read.
+                chars.compact();
+                isEOF = (-1 == reader.read( chars ));
+                chars.flip();
+            }
+
+            encoder.encode( chars, bytes, isEOF );
+
+            if( isEOF && !chars.hasRemaining() )
+            {
+                encoder.flush( bytes );
+                isFlushed = true;
+            }
+        }
+
+        bytes.flip();
+
+        return bytes.hasRemaining();
+    }
+}